@@ -0,0 +1,130 @@
+package ua.com.kiloom.simplescope;
+
+/**
+ * Неизменяемый снимок настроек устройства, с которыми получены данные. Каждый
+ * блок данных от АЦП помечается снимком, действовавшим в момент поступления
+ * блока, поэтому блок всегда обрабатывается со своими пределом напряжения и
+ * временем развёртки, даже если настройки уже изменились. Номер эпохи растёт
+ * при каждом изменении настроек. Смещение нуля в снимок не входит: оно не
+ * влияет на пересчёт отсчётов в напряжения.
+ *
+ * @author Vasily Monakhov
+ */
+final class AcquisitionSettings {
+
+    /**
+     * Настройки до отправки первой команды
+     */
+    static final AcquisitionSettings INITIAL = new AcquisitionSettings(0, 0, 0, 0, 0);
+
+    /**
+     * Номер эпохи настроек
+     */
+    private final long epoch;
+
+    /**
+     * Индекс предела напряжения
+     */
+    private final int voltageIndex;
+
+    /**
+     * Индекс времени развёртки
+     */
+    private final int timeIndex;
+
+    /**
+     * Режим входа (первый байт команды)
+     */
+    private final int input;
+
+    /**
+     * Режим синхронизации (команда, уровень и фронт, упакованные в одно число)
+     */
+    private final int sync;
+
+    /**
+     * Создаёт снимок настроек
+     *
+     * @param epoch номер эпохи
+     * @param voltageIndex индекс предела напряжения
+     * @param timeIndex индекс времени развёртки
+     * @param input режим входа
+     * @param sync режим синхронизации
+     */
+    private AcquisitionSettings(long epoch, int voltageIndex, int timeIndex, int input, int sync) {
+        this.epoch = epoch;
+        this.voltageIndex = voltageIndex;
+        this.timeIndex = timeIndex;
+        this.input = input;
+        this.sync = sync;
+    }
+
+    /**
+     * Возвращает снимок следующей эпохи, в котором изменена одна настройка
+     *
+     * @param type тип отправленной команды
+     * @param value значение, которое установила команда
+     * @return новый снимок настроек или этот же, если команда не входит в
+     * снимок
+     */
+    AcquisitionSettings with(CommandQueue.Type type, int value) {
+        switch (type) {
+            case VOLTAGE:
+                return new AcquisitionSettings(epoch + 1, value, timeIndex, input, sync);
+            case TIME:
+                return new AcquisitionSettings(epoch + 1, voltageIndex, value, input, sync);
+            case INPUT:
+                return new AcquisitionSettings(epoch + 1, voltageIndex, timeIndex, value, sync);
+            case SYNC:
+                return new AcquisitionSettings(epoch + 1, voltageIndex, timeIndex, input, value);
+            default:
+                return this;
+        }
+    }
+
+    /**
+     * Возвращает номер эпохи настроек
+     *
+     * @return номер эпохи
+     */
+    long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Возвращает индекс предела напряжения
+     *
+     * @return индекс предела напряжения
+     */
+    int getVoltageIndex() {
+        return voltageIndex;
+    }
+
+    /**
+     * Возвращает индекс времени развёртки
+     *
+     * @return индекс времени развёртки
+     */
+    int getTimeIndex() {
+        return timeIndex;
+    }
+
+    /**
+     * Возвращает режим входа
+     *
+     * @return первый байт команды режима входа
+     */
+    int getInput() {
+        return input;
+    }
+
+    /**
+     * Возвращает режим синхронизации
+     *
+     * @return команда, уровень и фронт синхронизации
+     */
+    int getSync() {
+        return sync;
+    }
+
+}
@@ -0,0 +1,234 @@
+package ua.com.kiloom.simplescope;
+
+/**
+ * Потоковый разборщик байтов от устройства. Устройство передаёт отсчёты АЦП
+ * как 16-битные слова (старший байт первым), у которых старшие 4 бита всегда
+ * нулевые. Если в потоке потерялся или добавился байт, то старший байт слова
+ * оказывается больше допустимого. Разборщик замечает это, сдвигается на один
+ * байт и снова захватывает границы слов, сохраняя уже собранные корректные
+ * отсчёты, вместо того чтобы выбрасывать весь блок. Собранные отсчёты
+ * нарезаются на кадры по {@link Const#ADC_DATA_BLOCK_SIZE} отсчётов.
+ *
+ * После сброса поток может начаться с середины слова, поэтому границы слов
+ * сначала захватываются так же, как после потери, но этот захват не
+ * считается сбоем и пропущенные при нём байты не учитываются.
+ *
+ * @author Vasily Monakhov
+ */
+class AdcStreamParser {
+
+    /**
+     * Максимально допустимое значение старшего байта слова
+     */
+    private static final int MAX_HIGH_BYTE = Const.ADC_MAX >> 8;
+
+    /**
+     * Сколько подряд корректных слов нужно принять после сдвига, чтобы
+     * считать границы слов снова захваченными
+     */
+    static final int LOCK_WORDS = 4;
+
+    /**
+     * Собираемый кадр
+     */
+    private final int[] frame = new int[Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Количество отсчётов в собираемом кадре
+     */
+    private int frameCount;
+
+    /**
+     * Количество отсчётов, после которого кадр считается собранным
+     */
+    private int frameLimit = Const.ADC_DATA_BLOCK_SIZE;
+
+    /**
+     * Старший байт слова, ожидающий младшего, или -1
+     */
+    private int pendingHigh = -1;
+
+    /**
+     * Сколько байтов нужно пропустить для сдвига графика
+     */
+    private int skipBytes;
+
+    /**
+     * Захвачены ли границы слов
+     */
+    private boolean locked;
+
+    /**
+     * Идёт ли первый захват границ слов после сброса
+     */
+    private boolean initial = true;
+
+    /**
+     * С какого отсчёта в кадре начались слова, принятые после сдвига
+     */
+    private int huntStart;
+
+    /**
+     * Количество потерь границ слов
+     */
+    private volatile long resyncs;
+
+    /**
+     * Количество отброшенных байтов
+     */
+    private volatile long discardedBytes;
+
+    /**
+     * Разбирает очередную порцию байтов до конца порции или до заполнения
+     * кадра. Если после вызова кадр собран, то его нужно забрать через
+     * {@link #getFrame()}, вызвать {@link #nextFrame()} и продолжить разбор
+     * оставшихся байтов.
+     *
+     * @param data массив байтов
+     * @param offset с какого байта начать
+     * @param length сколько байтов разобрать
+     * @return количество разобранных байтов
+     */
+    int feed(byte[] data, int offset, int length) {
+        int i = 0;
+        while (i < length && frameCount < frameLimit) {
+            int b = data[offset + i++] & 0xFF;
+            if (skipBytes > 0) {
+                skipBytes--;
+                continue;
+            }
+            if (pendingHigh < 0) {
+                pendingHigh = b;
+                continue;
+            }
+            if (pendingHigh > MAX_HIGH_BYTE) {
+                // граница слова потеряна, сдвинуться на один байт
+                loseLock();
+                if (!initial) {
+                    discardedBytes++;
+                }
+                pendingHigh = b;
+                continue;
+            }
+            frame[frameCount++] = pendingHigh << 8 | b;
+            pendingHigh = -1;
+            if (!locked && frameCount - huntStart >= LOCK_WORDS) {
+                locked = true;
+                initial = false;
+            }
+        }
+        if (frameCount == frameLimit) {
+            // кадр укорочен сдвигом, добить остаток последним значением
+            int last = frameCount > 0 ? frame[frameCount - 1] : Const.ADC_MIDDLE;
+            while (frameCount < Const.ADC_DATA_BLOCK_SIZE) {
+                frame[frameCount++] = last;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Граница слов потеряна. Слова, принятые после предыдущего сдвига, ещё не
+     * подтверждены и отбрасываются. При первой потере отбрасывается и
+     * последнее принятое слово: если байт пропал в его середине, то оно
+     * собрано из двух разных отсчётов.
+     */
+    private void loseLock() {
+        if (locked) {
+            resyncs++;
+            locked = false;
+            if (frameCount > 0) {
+                frameCount--;
+                discardedBytes += 2;
+            }
+        } else {
+            if (!initial) {
+                discardedBytes += 2 * (frameCount - huntStart);
+            }
+            frameCount = huntStart;
+        }
+        huntStart = frameCount;
+    }
+
+    /**
+     * Собран ли кадр
+     *
+     * @return true если кадр собран
+     */
+    boolean isFrameReady() {
+        return frameCount == Const.ADC_DATA_BLOCK_SIZE;
+    }
+
+    /**
+     * Начата ли сборка кадра
+     *
+     * @return true если в кадре ещё нет ни одного отсчёта
+     */
+    boolean isFrameEmpty() {
+        return frameCount == 0;
+    }
+
+    /**
+     * Возвращает собранный кадр. Массив используется повторно и действителен
+     * до вызова {@link #nextFrame()}.
+     *
+     * @return отсчёты кадра
+     */
+    int[] getFrame() {
+        return frame;
+    }
+
+    /**
+     * Начать сборку следующего кадра
+     */
+    void nextFrame() {
+        frameCount = 0;
+        huntStart = 0;
+        frameLimit = Const.ADC_DATA_BLOCK_SIZE;
+    }
+
+    /**
+     * Сдвинуть границу кадров. При положительном сдвиге из потока
+     * пропускается заданное количество отсчётов, при отрицательном текущий
+     * кадр завершается раньше.
+     *
+     * @param words сдвиг в отсчётах
+     */
+    void shift(int words) {
+        if (words > 0) {
+            skipBytes += 2 * words;
+        } else if (words < 0) {
+            frameLimit = Math.max(frameCount, Math.max(1, frameLimit + words));
+        }
+    }
+
+    /**
+     * Сбросить состояние разборщика, например после очистки буфера порта
+     */
+    void reset() {
+        nextFrame();
+        pendingHigh = -1;
+        skipBytes = 0;
+        locked = false;
+        initial = true;
+    }
+
+    /**
+     * Возвращает количество потерь границ слов
+     *
+     * @return количество повторных захватов границ слов
+     */
+    long getResyncs() {
+        return resyncs;
+    }
+
+    /**
+     * Возвращает количество отброшенных байтов
+     *
+     * @return количество отброшенных байтов
+     */
+    long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+}
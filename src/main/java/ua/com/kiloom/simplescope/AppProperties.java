@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jssc.SerialPort;
 
 /**
  * Класс для хранения настроек приложения
@@ -248,6 +249,138 @@ public abstract class AppProperties {
         setBoolean(Keys.HARMONICS_DECIBELLS, val);
     }
 
+    /**
+     * Показывать ли программную модель устройства в списке портов
+     * @return true если модель устройства доступна для выбора
+     */
+    static boolean isSimulatorEnabled() {
+        return getBoolean(Keys.SIMULATOR, false);
+    }
+
+    /**
+     * Возвращает количество блоков данных в секунду, выдаваемых программной
+     * моделью устройства
+     * @return количество блоков в секунду, не меньше 1
+     */
+    static int getSimulatorRate() {
+        return Math.max(1, getInteger(Keys.SIMULATOR_RATE, Const.SIMULATOR_RATE));
+    }
+
+    /**
+     * Возвращает количество блоков сырых данных, которые могут ожидать
+     * обработки
+     * @return ёмкость кольца блоков
+     */
+    static int getBlockRingSize() {
+        return getInteger(Keys.BLOCK_RING_SIZE, Const.BLOCK_RING_SIZE);
+    }
+
+    /**
+     * Возвращает политику переполнения кольца блоков сырых данных
+     * @return политика переполнения
+     */
+    static BlockRing.OverflowPolicy getBlockRingPolicy() {
+        try {
+            return BlockRing.OverflowPolicy.valueOf(getString(Keys.BLOCK_RING_POLICY, BlockRing.OverflowPolicy.DROP_OLDEST.name()));
+        } catch (IllegalArgumentException ex) {
+            Logger.getLogger(AppProperties.class.getName()).log(Level.WARNING, "Неизвестная политика переполнения", ex);
+            return BlockRing.OverflowPolicy.DROP_OLDEST;
+        }
+    }
+
+    /**
+     * Возвращает минимальную паузу между командами устройству
+     * @return пауза, мсек
+     */
+    static int getCommandGap() {
+        return getInteger(Keys.COMMAND_GAP, Const.COMMAND_GAP);
+    }
+
+    /**
+     * Возвращает количество потоков для обработки данных от устройств
+     * @return количество потоков, по умолчанию по числу процессоров
+     */
+    static int getProcessingThreads() {
+        return Math.max(1, getInteger(Keys.PROCESSING_THREADS, Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Включено ли автоматическое переподключение устройства при зависании
+     * связи
+     * @return true если включено
+     */
+    static boolean isReconnectEnabled() {
+        return getBoolean(Keys.RECONNECT, true);
+    }
+
+    /**
+     * Возвращает, через сколько ожидаемых периодов блока без данных связь
+     * считается зависшей
+     * @return количество периодов
+     */
+    static int getWatchdogPeriods() {
+        return getInteger(Keys.WATCHDOG_PERIODS, Const.WATCHDOG_PERIODS);
+    }
+
+    /**
+     * Возвращает минимальное время без данных, после которого связь
+     * считается зависшей
+     * @return время, мсек
+     */
+    static int getWatchdogMinTimeout() {
+        return getInteger(Keys.WATCHDOG_MIN_TIMEOUT, Const.WATCHDOG_MIN_TIMEOUT);
+    }
+
+    /**
+     * Возвращает параметры последовательного порта
+     * @return параметры порта, по умолчанию 115200 8N1
+     */
+    static LinkParameters getLinkParameters() {
+        return new LinkParameters(getInteger(Keys.BAUD_RATE, Const.BAUD_RATE),
+                getInteger(Keys.DATA_BITS, SerialPort.DATABITS_8),
+                getInteger(Keys.STOP_BITS, SerialPort.STOPBITS_1),
+                getInteger(Keys.PARITY, SerialPort.PARITY_NONE));
+    }
+
+    /**
+     * Сохраняет параметры последовательного порта
+     * @param link параметры порта
+     */
+    static void setLinkParameters(LinkParameters link) {
+        setInteger(Keys.BAUD_RATE, link.getBaudRate());
+        setInteger(Keys.DATA_BITS, link.getDataBits());
+        setInteger(Keys.STOP_BITS, link.getStopBits());
+        setInteger(Keys.PARITY, link.getParity());
+    }
+
+    /**
+     * Возвращает оконную функцию для анализа гармоник
+     * @return оконная функция, по умолчанию окно Ханна
+     */
+    static SpectrumWindow getSpectrumWindow() {
+        try {
+            return SpectrumWindow.valueOf(getString(Keys.SPECTRUM_WINDOW, SpectrumWindow.HANN.name()));
+        } catch (IllegalArgumentException ex) {
+            return SpectrumWindow.HANN;
+        }
+    }
+
+    /**
+     * Устанавливает оконную функцию для анализа гармоник
+     * @param window оконная функция
+     */
+    static void setSpectrumWindow(SpectrumWindow window) {
+        setString(Keys.SPECTRUM_WINDOW, window.name());
+    }
+
+    /**
+     * Возвращает каталог с файлами калибровки устройств
+     * @return каталог, по умолчанию текущий
+     */
+    static String getCalibrationDir() {
+        return getString(Keys.CALIBRATION_DIR, ".");
+    }
+
     /**
      * Ключи для настроек
      */
@@ -372,7 +505,108 @@ public abstract class AppProperties {
         /**
          * Кодировка для файлов с результатами
          */
-        TEXT_CHARSET
+        TEXT_CHARSET,
+        /**
+         * Показывать программную модель устройства в списке портов
+         */
+        SIMULATOR,
+        /**
+         * Количество блоков в секунду от программной модели устройства
+         */
+        SIMULATOR_RATE,
+        /**
+         * Количество блоков сырых данных, ожидающих обработки
+         */
+        BLOCK_RING_SIZE,
+        /**
+         * Политика переполнения кольца блоков сырых данных
+         */
+        BLOCK_RING_POLICY,
+        /**
+         * Минимальная пауза между командами устройству, мсек
+         */
+        COMMAND_GAP,
+        /**
+         * Количество потоков для обработки данных от устройств
+         */
+        PROCESSING_THREADS,
+        /**
+         * Автоматическое переподключение устройства
+         */
+        RECONNECT,
+        /**
+         * Через сколько ожидаемых периодов блока без данных связь считается
+         * зависшей
+         */
+        WATCHDOG_PERIODS,
+        /**
+         * Минимальное время без данных до переподключения, мсек
+         */
+        WATCHDOG_MIN_TIMEOUT,
+        /**
+         * Скорость последовательного порта, бод
+         */
+        BAUD_RATE,
+        /**
+         * Количество бит данных
+         */
+        DATA_BITS,
+        /**
+         * Стоповые биты
+         */
+        STOP_BITS,
+        /**
+         * Чётность
+         */
+        PARITY,
+        /**
+         * Оконная функция для анализа гармоник
+         */
+        SPECTRUM_WINDOW,
+        /**
+         * Каталог с файлами калибровки устройств
+         */
+        CALIBRATION_DIR,
+        /**
+         * Режим усреднения кадров
+         */
+        AVERAGING,
+        /**
+         * Количество усредняемых кадров
+         */
+        AVERAGE_FRAMES,
+        /**
+         * Режим огибающей
+         */
+        ENVELOPE,
+        /**
+         * Затухание огибающей, значений АЦП за кадр
+         */
+        ENVELOPE_DECAY,
+        /**
+         * Интервал сброса огибающей, мс
+         */
+        ENVELOPE_RESET,
+        /**
+         * Режим послесвечения
+         */
+        PERSISTENCE,
+        /**
+         * Затухание послесвечения, процентов за кадр
+         */
+        PERSISTENCE_DECAY,
+        /**
+         * Интерполяция sin(x)/x
+         */
+        INTERPOLATION,
+        /**
+         * Частота отрисовки, кадров в секунду
+         */
+        RENDER_FPS,
+        /**
+         * Программная отрисовка луча
+         */
+        DIRECT_RAY
 
     }
 
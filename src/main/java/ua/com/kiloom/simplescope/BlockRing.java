@@ -0,0 +1,257 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Кольцо заранее выделенных блоков для сырых данных от АЦП. Один поток
+ * (обработчик событий порта) заполняет блоки, задача обработки забирает их
+ * через {@link #poll()}, не блокируясь, и возвращает обратно. Блоки
+ * используются повторно, поэтому при работе память не выделяется, а при
+ * остановке потребителя очередь не растёт бесконечно: лишние блоки
+ * отбрасываются согласно политике переполнения.
+ *
+ * @author Vasily Monakhov
+ */
+class BlockRing {
+
+    /**
+     * Политика при переполнении кольца
+     */
+    static enum OverflowPolicy {
+
+        /**
+         * Отбросить самый старый ещё не обработанный блок
+         */
+        DROP_OLDEST,
+        /**
+         * Отбросить вновь поступивший блок
+         */
+        DROP_NEWEST
+    }
+
+    /**
+     * Блок данных
+     */
+    static class Block {
+
+        /**
+         * Данные
+         */
+        final byte[] data;
+
+        /**
+         * Количество записанных в блок байтов
+         */
+        int length;
+
+        /**
+         * Настройки устройства, действовавшие при поступлении блока
+         */
+        AcquisitionSettings settings;
+
+        /**
+         * Создаёт блок
+         *
+         * @param size размер блока в байтах
+         */
+        Block(int size) {
+            data = new byte[size];
+        }
+    }
+
+    /**
+     * Политика при переполнении
+     */
+    private final OverflowPolicy policy;
+
+    /**
+     * Блокировка для доступа к индексам кольца
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Свободные блоки, стек
+     */
+    private final Block[] free;
+
+    /**
+     * Количество свободных блоков
+     */
+    private int freeCount;
+
+    /**
+     * Заполненные блоки в порядке поступления, кольцевой буфер
+     */
+    private final Block[] filled;
+
+    /**
+     * Индекс самого старого заполненного блока
+     */
+    private int head;
+
+    /**
+     * Количество заполненных блоков
+     */
+    private int filledCount;
+
+    /**
+     * Количество отброшенных блоков
+     */
+    private long dropped;
+
+    /**
+     * Создаёт кольцо блоков
+     *
+     * @param capacity сколько заполненных блоков может ожидать обработки
+     * @param blockSize размер блока в байтах
+     * @param policy политика при переполнении
+     */
+    BlockRing(int capacity, int blockSize, OverflowPolicy policy) {
+        this.policy = policy;
+        filled = new Block[capacity];
+        // ещё по одному блоку заполняет производитель и держит потребитель
+        free = new Block[capacity + 2];
+        for (int i = 0; i < free.length; i++) {
+            free[i] = new Block(blockSize);
+        }
+        freeCount = free.length;
+    }
+
+    /**
+     * Получить блок для заполнения. Вызывается производителем. Если кольцо
+     * переполнено, то в зависимости от политики возвращается самый старый
+     * необработанный блок или null.
+     *
+     * @return блок для заполнения или null если новый блок нужно отбросить
+     */
+    Block acquire() {
+        lock.lock();
+        try {
+            if (freeCount > 0 && filledCount < filled.length) {
+                return free[--freeCount];
+            }
+            dropped++;
+            if (policy == OverflowPolicy.DROP_OLDEST && filledCount > 0) {
+                Block b = filled[head];
+                filled[head] = null;
+                head = (head + 1) % filled.length;
+                filledCount--;
+                return b;
+            }
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Поместить заполненный блок в кольцо. Вызывается производителем.
+     *
+     * @param block заполненный блок
+     */
+    void publish(Block block) {
+        lock.lock();
+        try {
+            filled[(head + filledCount) % filled.length] = block;
+            filledCount++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Забрать самый старый заполненный блок, не ожидая его поступления.
+     * Вызывается потребителем, который должен вернуть блок через
+     * {@link #release(Block)}.
+     *
+     * @return заполненный блок или null если кольцо пусто
+     */
+    Block poll() {
+        lock.lock();
+        try {
+            if (filledCount == 0) {
+                return null;
+            }
+            Block b = filled[head];
+            filled[head] = null;
+            head = (head + 1) % filled.length;
+            filledCount--;
+            return b;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Вернуть блок для повторного использования. Вызывается потребителем или
+     * производителем, если он передумал заполнять блок.
+     *
+     * @param block блок
+     */
+    void release(Block block) {
+        lock.lock();
+        try {
+            block.length = 0;
+            free[freeCount++] = block;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Отбросить все необработанные блоки
+     */
+    void clear() {
+        lock.lock();
+        try {
+            while (filledCount > 0) {
+                Block b = filled[head];
+                filled[head] = null;
+                head = (head + 1) % filled.length;
+                filledCount--;
+                b.length = 0;
+                free[freeCount++] = b;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает ёмкость кольца
+     *
+     * @return сколько заполненных блоков может ожидать обработки
+     */
+    int getCapacity() {
+        return filled.length;
+    }
+
+    /**
+     * Возвращает количество ожидающих обработки блоков
+     *
+     * @return количество заполненных блоков
+     */
+    int size() {
+        lock.lock();
+        try {
+            return filledCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество блоков, отброшенных из-за переполнения
+     *
+     * @return количество отброшенных блоков
+     */
+    long getDropped() {
+        lock.lock();
+        try {
+            return dropped;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,127 @@
+package ua.com.kiloom.simplescope;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Калибровка устройства. Для каждого предела напряжения заранее вычисляется
+ * таблица напряжений для всех значений АЦП, поэтому пересчёт отсчёта в
+ * напряжение - это одно обращение к массиву. Напряжение по таблице:
+ * offset + gain * v + square * v * v, где v - идеальное напряжение
+ * (значение АЦП относительно середины, умноженное на предел).
+ *
+ * Файл калибровки - файл настроек Java с ключами range.N.gain,
+ * range.N.offset и range.N.square, где N - индекс предела в
+ * {@link Const#VOLTAGES}. Отсутствующие ключи означают идеальное устройство
+ * (1, 0 и 0 соответственно).
+ *
+ * @author Vasily Monakhov
+ */
+final class Calibration {
+
+    /**
+     * Калибровка идеального устройства
+     */
+    static final Calibration IDENTITY = new Calibration(null, null, null);
+
+    /**
+     * Таблицы напряжений по пределам и значениям АЦП
+     */
+    private final double[][] tables = new double[Const.VOLTAGES.length][Const.ADC_RANGE];
+
+    /**
+     * Создаёт калибровку
+     *
+     * @param gain коэффициент усиления по пределам или null
+     * @param offset смещение нуля по пределам, В, или null
+     * @param square квадратичная поправка по пределам, 1/В, или null
+     */
+    Calibration(double[] gain, double[] offset, double[] square) {
+        for (int range = 0; range < tables.length; range++) {
+            double g = gain != null ? gain[range] : 1;
+            double o = offset != null ? offset[range] : 0;
+            double s = square != null ? square[range] : 0;
+            double[] table = tables[range];
+            for (int value = 0; value < Const.ADC_RANGE; value++) {
+                double v = ((value - Const.ADC_MIDDLE) * Const.VOLTAGES[range]) / Const.ADC_MIDDLE;
+                table[value] = o + g * v + s * v * v;
+            }
+        }
+    }
+
+    /**
+     * Возвращает таблицу напряжений для предела. Массив общий, изменять его
+     * нельзя.
+     *
+     * @param voltageIndex индекс предела напряжения
+     * @return напряжения по значениям АЦП
+     */
+    double[] getTable(int voltageIndex) {
+        return tables[voltageIndex];
+    }
+
+    /**
+     * Загружает калибровку из потока
+     *
+     * @param is поток с файлом калибровки
+     * @return калибровка
+     * @throws IOException
+     */
+    static Calibration load(InputStream is) throws IOException {
+        Properties p = new Properties();
+        p.load(is);
+        int n = Const.VOLTAGES.length;
+        double[] gain = new double[n];
+        double[] offset = new double[n];
+        double[] square = new double[n];
+        try {
+            for (int range = 0; range < n; range++) {
+                gain[range] = Double.parseDouble(p.getProperty("range." + range + ".gain", "1"));
+                offset[range] = Double.parseDouble(p.getProperty("range." + range + ".offset", "0"));
+                square[range] = Double.parseDouble(p.getProperty("range." + range + ".square", "0"));
+            }
+        } catch (NumberFormatException ex) {
+            throw new IOException("Неверное число в файле калибровки", ex);
+        }
+        return new Calibration(gain, offset, square);
+    }
+
+    /**
+     * Возвращает файл калибровки устройства
+     *
+     * @param deviceId идентификатор устройства (имя порта)
+     * @return файл калибровки
+     */
+    static File getFile(String deviceId) {
+        String name = deviceId.replaceAll("[^A-Za-z0-9._-]", "_");
+        return new File(AppProperties.getCalibrationDir(), "calibration-" + name + ".properties");
+    }
+
+    /**
+     * Загружает калибровку устройства из его файла. Если файла нет или он
+     * повреждён, используется калибровка идеального устройства.
+     *
+     * @param deviceId идентификатор устройства (имя порта)
+     * @return калибровка
+     */
+    static Calibration forDevice(String deviceId) {
+        File file = getFile(deviceId);
+        if (!file.isFile()) {
+            return IDENTITY;
+        }
+        try (FileInputStream fis = new FileInputStream(file)) {
+            Calibration c = load(fis);
+            Logger.getLogger(Calibration.class.getName()).log(Level.INFO, "Загружена калибровка {0}", file);
+            return c;
+        } catch (IOException ex) {
+            Logger.getLogger(Calibration.class.getName()).log(Level.WARNING, "Ошибка чтения файла калибровки " + file, ex);
+            return IDENTITY;
+        }
+    }
+
+}
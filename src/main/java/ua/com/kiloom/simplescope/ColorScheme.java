@@ -37,6 +37,21 @@ class ColorScheme {
      */
     private final Color rulerColor;
 
+    /**
+     * Цвет огибающей, между цветом луча и цветом фона
+     */
+    private final Color envelopeColor;
+
+    /**
+     * Количество цветов палитры послесвечения
+     */
+    static final int PALETTE_SIZE = 256;
+
+    /**
+     * Палитра послесвечения в ARGB, от прозрачного к цвету луча
+     */
+    private final int[] persistencePalette = new int[PALETTE_SIZE];
+
     /**
      * Имя схемы
      */
@@ -65,6 +80,20 @@ class ColorScheme {
         this.rayColor = rayColor;
         this.textColor = textColor;
         this.rulerColor = rulerColor;
+        this.envelopeColor = new Color(
+                (rayColor.getRed() + 2 * backgroundColor.getRed()) / 3,
+                (rayColor.getGreen() + 2 * backgroundColor.getGreen()) / 3,
+                (rayColor.getBlue() + 2 * backgroundColor.getBlue()) / 3);
+        // без попаданий пиксель прозрачен, под ним виден фон с сеткой
+        persistencePalette[0] = 0;
+        for (int i = 1; i < PALETTE_SIZE; i++) {
+            // корень подтягивает редкие попадания, чтобы они были заметны
+            double t = 0.15 + 0.85 * Math.sqrt((double) i / (PALETTE_SIZE - 1));
+            int r = (int) Math.round(backgroundColor.getRed() + t * (rayColor.getRed() - backgroundColor.getRed()));
+            int g = (int) Math.round(backgroundColor.getGreen() + t * (rayColor.getGreen() - backgroundColor.getGreen()));
+            int b = (int) Math.round(backgroundColor.getBlue() + t * (rayColor.getBlue() - backgroundColor.getBlue()));
+            persistencePalette[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+        }
     }
 
     private final static Color BLACK = Color.BLACK;
@@ -204,6 +233,24 @@ class ColorScheme {
         return rayColor;
     }
 
+    /**
+     * Возвращает цвет огибающей
+     *
+     * @return цвет огибающей
+     */
+    Color getEnvelopeColor() {
+        return envelopeColor;
+    }
+
+    /**
+     * Возвращает палитру послесвечения. Массив общий, изменять его нельзя.
+     *
+     * @return {@link #PALETTE_SIZE} цветов ARGB от прозрачного к цвету луча
+     */
+    int[] getPersistencePalette() {
+        return persistencePalette;
+    }
+
     /**
      * Возвращает цвет надписей
      *
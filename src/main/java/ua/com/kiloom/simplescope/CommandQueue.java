@@ -0,0 +1,335 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jssc.SerialPortException;
+
+/**
+ * Асинхронная очередь команд устройству. Для каждого типа команды хранится
+ * только последняя ещё не отправленная команда, поэтому при быстром движении
+ * ползунка или удержании кнопки в устройство уходит лишь последнее значение.
+ * Между командами выдерживается минимальная пауза, чтобы команды не мешали
+ * приёму данных от АЦП.
+ *
+ * @author Vasily Monakhov
+ */
+class CommandQueue {
+
+    /**
+     * Тип команды
+     */
+    static enum Type {
+
+        /**
+         * Предел напряжения
+         */
+        VOLTAGE,
+        /**
+         * Время развёртки
+         */
+        TIME,
+        /**
+         * Режим входа
+         */
+        INPUT,
+        /**
+         * Режим синхронизации
+         */
+        SYNC,
+        /**
+         * Смещение нуля
+         */
+        ZERO_LEVEL
+    }
+
+    /**
+     * Отправитель команд в устройство
+     */
+    interface Sender {
+
+        /**
+         * Отправить команду. Вызывается из потока очереди.
+         *
+         * @param type тип команды
+         * @param value значение, которое устанавливает команда
+         * @param command байты команды
+         * @throws SerialPortException
+         */
+        void send(Type type, int value, byte[] command) throws SerialPortException;
+    }
+
+    /**
+     * Команда, ожидающая отправки
+     */
+    private static class Command {
+
+        /**
+         * Значение, которое устанавливает команда
+         */
+        final int value;
+
+        /**
+         * Байты команды
+         */
+        final byte[] bytes;
+
+        /**
+         * Создаёт команду
+         *
+         * @param value значение
+         * @param bytes байты команды
+         */
+        Command(int value, byte[] bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Отправитель команд
+     */
+    private final Sender sender;
+
+    /**
+     * Минимальная пауза между командами, нсек
+     */
+    private final long minGap;
+
+    /**
+     * Блокировка для доступа к ожидающим командам
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Сигнал о появлении команды
+     */
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * Сигнал об опустошении очереди
+     */
+    private final Condition idle = lock.newCondition();
+
+    /**
+     * Ожидающие отправки команды, по одной на тип
+     */
+    private final Map<Type, Command> pending = new EnumMap<>(Type.class);
+
+    /**
+     * Последние поставленные в очередь команды каждого типа, то есть
+     * последняя известная конфигурация устройства
+     */
+    private final Map<Type, Command> last = new EnumMap<>(Type.class);
+
+    /**
+     * Отправляется ли сейчас команда
+     */
+    private boolean sending;
+
+    /**
+     * Количество отправленных команд
+     */
+    private long sent;
+
+    /**
+     * Количество команд, заменённых более новыми до отправки
+     */
+    private long coalesced;
+
+    /**
+     * Поток отправки команд
+     */
+    private Thread thread;
+
+    /**
+     * Создаёт очередь команд
+     *
+     * @param sender отправитель команд
+     * @param minGap минимальная пауза между командами, мсек
+     */
+    CommandQueue(Sender sender, int minGap) {
+        this.sender = sender;
+        this.minGap = TimeUnit.MILLISECONDS.toNanos(minGap);
+    }
+
+    /**
+     * Запустить поток отправки команд
+     *
+     * @param name имя потока
+     */
+    void start(String name) {
+        lock.lock();
+        try {
+            pending.clear();
+            last.clear();
+            final Thread th = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        long lastSend = System.nanoTime() - minGap;
+                        while (true) {
+                            Type type;
+                            Command cmd;
+                            lock.lockInterruptibly();
+                            try {
+                                while (pending.isEmpty()) {
+                                    sending = false;
+                                    idle.signalAll();
+                                    notEmpty.await();
+                                }
+                                type = pending.keySet().iterator().next();
+                                cmd = pending.remove(type);
+                                sending = true;
+                            } finally {
+                                lock.unlock();
+                            }
+                            long wait = lastSend + minGap - System.nanoTime();
+                            if (wait > 0) {
+                                TimeUnit.NANOSECONDS.sleep(wait);
+                            }
+                            try {
+                                sender.send(type, cmd.value, cmd.bytes);
+                            } catch (SerialPortException ex) {
+                                Logger.getLogger(CommandQueue.class.getName()).log(Level.SEVERE, "Ошибка отправки команды в устройство", ex);
+                            }
+                            lastSend = System.nanoTime();
+                            lock.lock();
+                            try {
+                                sent++;
+                            } finally {
+                                lock.unlock();
+                            }
+                        }
+                    } catch (InterruptedException ex) {
+                        // штатная остановка через stop()
+                        Logger.getLogger(CommandQueue.class.getName()).log(Level.FINE, "Отправка команд остановлена", ex);
+                    } finally {
+                        lock.lock();
+                        try {
+                            idle.signalAll();
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                }
+            }, name);
+            th.setDaemon(true);
+            thread = th;
+            th.start();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Остановить поток отправки команд, неотправленные команды отбрасываются
+     */
+    void stop() {
+        Thread th;
+        lock.lock();
+        try {
+            th = thread;
+            thread = null;
+            pending.clear();
+        } finally {
+            lock.unlock();
+        }
+        if (th != null) {
+            th.interrupt();
+        }
+    }
+
+    /**
+     * Поставить команду в очередь. Ожидающая команда того же типа заменяется.
+     *
+     * @param type тип команды
+     * @param value значение, которое устанавливает команда
+     * @param command байты команды
+     */
+    void submit(Type type, int value, byte... command) {
+        lock.lock();
+        try {
+            Command cmd = new Command(value, command);
+            last.put(type, cmd);
+            if (pending.put(type, cmd) != null) {
+                coalesced++;
+            }
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Поставить в очередь заново последние команды каждого типа, например
+     * чтобы восстановить конфигурацию переподключённого устройства
+     */
+    void replay() {
+        lock.lock();
+        try {
+            pending.putAll(last);
+            if (!pending.isEmpty()) {
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Дождаться отправки всех команд
+     *
+     * @param timeout тайм-аут, мсек
+     * @return true если все команды отправлены
+     * @throws InterruptedException
+     */
+    boolean awaitIdle(long timeout) throws InterruptedException {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+        lock.lock();
+        try {
+            while (thread != null && (sending || !pending.isEmpty())) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = idle.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество отправленных команд
+     *
+     * @return количество отправленных команд
+     */
+    long getSent() {
+        lock.lock();
+        try {
+            return sent;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество команд, заменённых более новыми до отправки
+     *
+     * @return количество объединённых команд
+     */
+    long getCoalesced() {
+        lock.lock();
+        try {
+            return coalesced;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -76,6 +76,103 @@ class Const {
      */
     static final int PORT_TIMEOUT = 1000;
 
+    /**
+     * Максимальный сдвиг графика по горизонтали за одно чтение блока, отсчётов
+     */
+    static final int MAX_TIME_OFFSET = ADC_DATA_BLOCK_SIZE / 2;
+
+    /**
+     * Количество блоков сырых данных, ожидающих обработки, по умолчанию
+     */
+    static final int BLOCK_RING_SIZE = 16;
+
+    /**
+     * Количество обработанных кадров, ожидающих отображения. Если
+     * отображение не успевает, самый старый кадр отбрасывается.
+     */
+    static final int RESULT_QUEUE_SIZE = 4;
+
+    /**
+     * Ёмкость пула результатов: очередь кадров, кадр в обработке и два кадра,
+     * которые держит окно (текущий и предыдущий)
+     */
+    static final int RESULT_POOL_SIZE = RESULT_QUEUE_SIZE + 3;
+
+    /**
+     * Сколько длин участка хранит кэш таблиц для вычисления спектра
+     */
+    static final int SPECTRUM_PLAN_CACHE_SIZE = 32;
+
+    /**
+     * Наибольшее суммарное количество пикселей свободных изображений в пуле
+     * изображений (около 64 МБ)
+     */
+    static final long IMAGE_POOL_MAX_PIXELS = 16L * 1024 * 1024;
+
+    /**
+     * Частота отрисовки по умолчанию, кадров в секунду
+     */
+    static final int RENDER_FPS = 30;
+
+    /**
+     * Количество усредняемых кадров по умолчанию
+     */
+    static final int AVERAGE_FRAMES = 16;
+
+    /**
+     * Наибольшее количество одновременно открытых устройств, для которых
+     * обработка данных гарантированно выполняется в общем пуле потоков
+     */
+    static final int MAX_DEVICES = 16;
+
+    /**
+     * Скорости последовательного порта, которые умеет устройство, бод
+     */
+    static final int[] BAUD_RATES = {115200, 230400, 460800, 921600};
+
+    /**
+     * Скорость последовательного порта по умолчанию, бод
+     */
+    static final int BAUD_RATE = 115200;
+
+    /**
+     * Сколько длится измерение на одной скорости при проверке связи, мсек
+     */
+    static final int LINK_TEST_DURATION = 2000;
+
+    /**
+     * Период проверки сторожем связи, мсек
+     */
+    static final int WATCHDOG_INTERVAL = 500;
+
+    /**
+     * Через сколько ожидаемых периодов блока без данных связь считается
+     * зависшей, по умолчанию
+     */
+    static final int WATCHDOG_PERIODS = 10;
+
+    /**
+     * Минимальное время без данных, после которого связь считается зависшей,
+     * по умолчанию, мсек
+     */
+    static final int WATCHDOG_MIN_TIMEOUT = 2000;
+
+    /**
+     * Пауза между попытками переподключения, мсек
+     */
+    static final int RECONNECT_INTERVAL = 500;
+
+    /**
+     * Минимальная пауза между командами устройству по умолчанию, мсек
+     */
+    static final int COMMAND_GAP = 5;
+
+    /**
+     * Количество блоков данных в секунду от программной модели устройства по
+     * умолчанию, примерно как у настоящего устройства на 115200 бод
+     */
+    static final int SIMULATOR_RATE = 10;
+
     /**
      * желаемый отступ для рисования графика по веритикали
      */
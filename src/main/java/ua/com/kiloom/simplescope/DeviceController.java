@@ -1,14 +1,16 @@
 package ua.com.kiloom.simplescope;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import jssc.SerialPort;
-import jssc.SerialPortEvent;
-import jssc.SerialPortEventListener;
 import jssc.SerialPortException;
 import jssc.SerialPortTimeoutException;
 
@@ -23,9 +25,9 @@ import jssc.SerialPortTimeoutException;
 public class DeviceController {
 
     /**
-     * Последовательный порт для работы с устройством
+     * Канал связи с устройством
      */
-    private SerialPort port;
+    private DeviceTransport port;
 
     /**
      * Что вызвать при завершении потока считывания от устройства. Когда поток
@@ -35,34 +37,193 @@ public class DeviceController {
     private final Runnable onStop;
 
     /**
-     * Создаёт объект для работы с устройством
+     * Создаёт объект для работы с устройством, данные обрабатываются общим
+     * исполнителем {@link DeviceManager#getDefault()}
      *
      * @param onStop что вызвать по завершении потока считывания и обработки
      * данных
      */
     DeviceController(Runnable onStop) {
+        this(onStop, DeviceManager.getDefault().getExecutor());
+    }
+
+    /**
+     * Создаёт объект для работы с устройством
+     *
+     * @param onStop что вызвать по завершении считывания и обработки данных
+     * @param executor исполнитель для обработки данных от АЦП
+     */
+    DeviceController(Runnable onStop, Executor executor) {
         this.onStop = onStop;
+        this.executor = executor;
     }
 
     /**
-     * Очередь для байтов от АЦП. Сюда обработчик прерывания от
-     * последовательного порта помещает массивы байтов.
+     * Кольцо блоков для байтов от АЦП. Сюда обработчик прерывания от
+     * последовательного порта помещает блоки байтов.
+     */
+    private final BlockRing bytesRing = new BlockRing(AppProperties.getBlockRingSize(),
+            Const.BYTES_BLOCK_SIZE, AppProperties.getBlockRingPolicy());
+
+    /**
+     * Буфер для вычитывания из порта блока, который отбрасывается из-за
+     * переполнения кольца
+     */
+    private final byte[] discardBuffer = new byte[Const.BYTES_BLOCK_SIZE];
+
+    /**
+     * Разборщик потока байтов на кадры отсчётов. Используется только потоком
+     * обработки данных.
      */
-    private final LinkedBlockingQueue<byte[]> bytesQueue = new LinkedBlockingQueue<>();
+    private final AdcStreamParser parser = new AdcStreamParser();
+
+    /**
+     * Настройки, с которыми получено начало собираемого кадра. Используется
+     * только потоком обработки данных.
+     */
+    private AcquisitionSettings frameSettings = AcquisitionSettings.INITIAL;
+
+    /**
+     * Возвращает количество блоков, отброшенных из-за того, что поток
+     * обработки не успевал их обрабатывать
+     *
+     * @return количество отброшенных блоков
+     */
+    long getDroppedBlocks() {
+        return bytesRing.getDropped();
+    }
+
+    /**
+     * Возвращает количество потерь границ слов в потоке байтов от устройства
+     *
+     * @return количество повторных захватов границ слов
+     */
+    long getResyncs() {
+        return parser.getResyncs();
+    }
+
+    /**
+     * Возвращает количество байтов, отброшенных при повторных захватах границ
+     * слов
+     *
+     * @return количество отброшенных байтов
+     */
+    long getDiscardedBytes() {
+        return parser.getDiscardedBytes();
+    }
 
     /**
      * Очередь обработанных данных от АЦП. Сюда помещаются вычисленные значения.
+     * Очередь ограничена: если потребитель не успевает, самый старый результат
+     * возвращается в пул.
+     */
+    private final ArrayBlockingQueue<Result> adcQueue = new ArrayBlockingQueue<>(Const.RESULT_QUEUE_SIZE);
+
+    /**
+     * Пул результатов, из которого берутся результаты для новых кадров
+     */
+    private final ResultPool resultPool = new ResultPool(Const.RESULT_POOL_SIZE);
+
+    /**
+     * Количество результатов, отброшенных из-за того, что потребитель не
+     * успевал их забирать
      */
-    private final LinkedBlockingQueue<Result> adcQueue = new LinkedBlockingQueue<>();
+    private volatile long droppedResults;
 
     /**
-     * Флажок-сигнал для остановки получения данных от устройства. Чтобы
-     * остановить поток обработки данных от АЦП нужно взвести этот флажок и
-     * дождаться вызова onStop.run();
+     * Возвращает количество результатов, отброшенных из-за переполнения
+     * очереди результатов
+     *
+     * @return количество отброшенных результатов
+     */
+    long getDroppedResults() {
+        return droppedResults;
+    }
+
+    /**
+     * Возвращает количество созданных результатов. После заполнения пула
+     * число не растёт, если потребитель возвращает результаты.
+     *
+     * @return количество созданных результатов
+     */
+    long getAllocatedResults() {
+        return resultPool.getAllocated();
+    }
+
+    /**
+     * Вернуть результат, полученный через {@link #getADCResult()}, для
+     * повторного использования. После этого к результату обращаться нельзя.
+     *
+     * @param r результат, может быть null
+     */
+    void releaseResult(Result r) {
+        resultPool.release(r);
+    }
+
+    /**
+     * Стать ещё одним владельцем результата. Результат нужно вернуть через
+     * {@link #releaseResult(Result)}.
+     *
+     * @param r результат, может быть null
+     */
+    void retainResult(Result r) {
+        if (r != null) {
+            resultPool.retain(r);
+        }
+    }
+
+    /**
+     * Флажок-сигнал для остановки получения данных от устройства. Взводится
+     * методом close(), после чего нужно дождаться вызова onStop.run();
      *
      * @see onStop
      */
-    private boolean stop;
+    private volatile boolean stop;
+
+    /**
+     * Исполнитель, в потоках которого обрабатываются данные от АЦП. Может
+     * быть общим для нескольких устройств.
+     */
+    private final Executor executor;
+
+    /**
+     * Поставлена ли задача обработки в очередь исполнителя
+     */
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /**
+     * Работает ли устройство: взводится при открытии и сбрасывается при
+     * закрытии порта
+     */
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * Калибровка устройства, загружается при открытии
+     */
+    private volatile Calibration calibration = Calibration.IDENTITY;
+
+    /**
+     * Возвращает калибровку устройства
+     *
+     * @return калибровка устройства
+     */
+    Calibration getCalibration() {
+        return calibration;
+    }
+
+    /**
+     * Идентификатор устройства (имя порта)
+     */
+    private volatile String deviceId;
+
+    /**
+     * Возвращает идентификатор устройства
+     *
+     * @return имя порта, через который открыто устройство
+     */
+    String getDeviceId() {
+        return deviceId;
+    }
 
     /**
      * Количество шагов, которые нужно пропустить
@@ -77,86 +238,418 @@ public class DeviceController {
     }
 
     /**
-     * Открыть устройство. Устанавливает связь с портом и запускает поток
-     * обработки данных от АЦП.
+     * Создаёт канал связи по имени порта. Для имён, начинающихся с
+     * {@link SimulatedDevice#PORT_NAME}, создаётся программная модель
+     * устройства с этим именем.
      *
      * @param portName имя порта
-     * @throws SerialPortException
+     * @return канал связи с устройством
      */
-    void open(String portName) throws SerialPortException {
-        timeOffset.set(0);
-        port = new SerialPort(portName);
-        port.openPort();
-        port.setParams(SerialPort.BAUDRATE_115200,
-                SerialPort.DATABITS_8,
-                SerialPort.STOPBITS_1,
-                SerialPort.PARITY_NONE);
-        port.addEventListener(new SerialPortEventListener() {
-            @Override
-            public void serialEvent(SerialPortEvent event) {
-                int offset = 2 * timeOffset.get();
-                if (event.getEventValue() >= Const.BYTES_BLOCK_SIZE + offset) {
-                    try {
-                        byte[] data = port.readBytes(Const.BYTES_BLOCK_SIZE + offset, Const.PORT_TIMEOUT);
-                        bytesQueue.add(data);
-                        timeOffset.set(0);
-                    } catch (SerialPortException ex) {
-                        Logger.getLogger(DeviceController.class.getName()).log(Level.SEVERE, "Ошибка чтения данных из устройства!", ex);
-                    } catch (SerialPortTimeoutException ex) {
+    static DeviceTransport createTransport(String portName) {
+        if (portName.startsWith(SimulatedDevice.PORT_NAME)) {
+            return new SimulatedDevice(portName, AppProperties.getSimulatorRate());
+        }
+        return new SerialTransport(portName, AppProperties.getLinkParameters());
+    }
+
+    /**
+     * Слушатель поступления данных от устройства. Забирает из порта блоки
+     * байтов и помещает их в кольцо.
+     */
+    private final DeviceTransport.Listener portListener = new DeviceTransport.Listener() {
+        @Override
+        public void dataAvailable(int available) {
+            int size = Const.BYTES_BLOCK_SIZE;
+            if (available >= size) {
+                BlockRing.Block block = bytesRing.acquire();
+                try {
+                    if (block == null) {
+                        // кольцо переполнено, но данные из порта нужно забрать
+                        port.readBytes(discardBuffer, size, Const.PORT_TIMEOUT);
+                    } else {
+                        // байты уже пришли, поэтому пометить блок настройками до чтения
+                        block.settings = settings;
+                        port.readBytes(block.data, size, Const.PORT_TIMEOUT);
+                        block.length = size;
+                        bytesRing.publish(block);
+                        block = null;
+                        scheduleProcessing();
+                    }
+                    lastBlockTime = System.nanoTime();
+                } catch (SerialPortException ex) {
+                    Logger.getLogger(DeviceController.class.getName()).log(Level.SEVERE, "Ошибка чтения данных из устройства!", ex);
+                } catch (SerialPortTimeoutException ex) {
+                    if (AppProperties.isReconnectEnabled()) {
+                        Logger.getLogger(DeviceController.class.getName()).log(Level.WARNING, "Тайм-аут последовательного порта, переподключение", ex);
+                        WATCHDOG.execute(readTimeoutTask);
+                    } else {
                         Logger.getLogger(DeviceController.class.getName()).log(Level.SEVERE, "Тайм-аут последовательного порта!", ex);
-                        stop = true;
+                        close();
+                    }
+                } finally {
+                    if (block != null) {
+                        bytesRing.release(block);
                     }
                 }
             }
-        }, SerialPort.MASK_RXCHAR);
-        port.purgePort(SerialPort.PURGE_RXCLEAR | SerialPort.PURGE_RXABORT);
+        }
+    };
+
+    /**
+     * Открыть устройство. Устанавливает связь с портом и начинает обработку
+     * данных от АЦП.
+     *
+     * @param portName имя порта
+     * @throws SerialPortException
+     */
+    void open(String portName) throws SerialPortException {
+        open(createTransport(portName));
+    }
+
+    /**
+     * Открыть устройство через заданный канал связи и начать обработку данных
+     * от АЦП.
+     *
+     * @param transport канал связи с устройством
+     * @throws SerialPortException
+     */
+    void open(DeviceTransport transport) throws SerialPortException {
+        timeOffset.set(0);
+        invalidateSentState();
+        port = transport;
+        lastBlockTime = System.nanoTime();
+        // данные могут начать обрабатываться сразу после открытия порта
+        deviceId = port.getName();
+        calibration = Calibration.forDevice(deviceId);
+        port.open(portListener);
+        port.purge();
+        parser.reset();
         stop = false;
-        // поток, обрабатывающий данные от АЦП
-        Thread th = new Thread(new Runnable() {
-            @Override
-            public void run() {
+        running.set(true);
+        commands.start("DeviceCommands-" + deviceId);
+        if (AppProperties.isReconnectEnabled()) {
+            watchdogFuture = WATCHDOG.scheduleWithFixedDelay(watchdogTask,
+                    Const.WATCHDOG_INTERVAL, Const.WATCHDOG_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Общий для всех устройств поток сторожа связи
+     */
+    private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread th = new Thread(r, "DeviceWatchdog");
+            th.setDaemon(true);
+            return th;
+        }
+    });
+
+    /**
+     * Задача сторожа связи этого устройства
+     */
+    private volatile ScheduledFuture<?> watchdogFuture;
+
+    /**
+     * Время поступления последнего блока, нсек
+     */
+    private volatile long lastBlockTime;
+
+    /**
+     * Идёт ли переподключение
+     */
+    private final AtomicBoolean reconnecting = new AtomicBoolean();
+
+    /**
+     * Нужно ли сбросить разборщик перед обработкой следующего блока
+     */
+    private final AtomicBoolean parserResetRequired = new AtomicBoolean();
+
+    /**
+     * Блокировка открытия и закрытия порта при переподключении и остановке
+     */
+    private final Object portLock = new Object();
+
+    /**
+     * Количество переподключений
+     */
+    private volatile long reconnects;
+
+    /**
+     * Суммарное время переподключений, мсек
+     */
+    private volatile long reconnectTime;
+
+    /**
+     * Время последнего переподключения, мсек
+     */
+    private volatile long lastReconnectTime;
+
+    /**
+     * Количество блоков, не полученных за время зависаний связи
+     */
+    private volatile long lostBlocks;
+
+    /**
+     * Возвращает ожидаемый период поступления блоков: блок не может прийти
+     * быстрее, чем его пропускает канал, и быстрее, чем длится развёртка
+     *
+     * @return период, сек
+     */
+    private double getExpectedBlockPeriod() {
+        double linkPeriod = (double) Const.BYTES_BLOCK_SIZE / port.getBytesPerSecond();
+        return Math.max(linkPeriod, Const.TIMES[settings.getTimeIndex()]);
+    }
+
+    /**
+     * Проверка, не завис ли поток данных от устройства
+     */
+    private final Runnable watchdogTask = new Runnable() {
+        @Override
+        public void run() {
+            if (stop || !running.get() || reconnecting.get()) {
+                return;
+            }
+            long timeout = Math.max(TimeUnit.MILLISECONDS.toNanos(AppProperties.getWatchdogMinTimeout()),
+                    (long) (AppProperties.getWatchdogPeriods() * getExpectedBlockPeriod() * 1e9));
+            if (System.nanoTime() - lastBlockTime > timeout) {
+                Logger.getLogger(DeviceController.class.getName()).log(Level.WARNING, "Нет данных от устройства {0}, переподключение", deviceId);
+                reconnect();
+            }
+        }
+    };
+
+    /**
+     * Переподключение по тайм-ауту чтения
+     */
+    private final Runnable readTimeoutTask = new Runnable() {
+        @Override
+        public void run() {
+            reconnect();
+        }
+    };
+
+    /**
+     * Очередная попытка переподключения
+     */
+    private final Runnable reconnectTask = new Runnable() {
+        @Override
+        public void run() {
+            tryReconnect();
+        }
+    };
+
+    /**
+     * Время начала переподключения, нсек. Используется только в потоке
+     * сторожа связи.
+     */
+    private long reconnectStarted;
+
+    /**
+     * Сколько поток данных простоял до начала переподключения, нсек.
+     * Используется только в потоке сторожа связи.
+     */
+    private long reconnectStalled;
+
+    /**
+     * Закрыть порт, не прерывая работу контроллера
+     *
+     * @param level уровень журнала для ошибки закрытия
+     */
+    private void closePort(Level level) {
+        synchronized (portLock) {
+            if (port.isOpened()) {
                 try {
-                    while (!stop) {
-                        // бесконечный цикл получения данных
-                        Result r;
-                        if (bytesQueue.isEmpty()) {
-                            TimeUnit.MILLISECONDS.sleep(100);
-                        } else {
-                            if ((r = processAdcData()) != null) {
-                                adcQueue.add(r);
-                            }
-                        }
+                    port.close();
+                } catch (SerialPortException ex) {
+                    Logger.getLogger(DeviceController.class.getName()).log(level, "Ошибка закрытия порта", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Начать переподключение устройства: закрыть порт и сразу попробовать
+     * открыть его заново. Выполняется в потоке сторожа связи.
+     */
+    private void reconnect() {
+        if (!reconnecting.compareAndSet(false, true)) {
+            return;
+        }
+        reconnectStarted = System.nanoTime();
+        reconnectStalled = reconnectStarted - lastBlockTime;
+        try {
+            closePort(Level.FINE);
+            bytesRing.clear();
+            parserResetRequired.set(true);
+        } catch (RuntimeException ex) {
+            reconnecting.set(false);
+            throw ex;
+        }
+        tryReconnect();
+    }
+
+    /**
+     * Одна попытка переподключения: если порт появился в системе, открыть
+     * его и восстановить последнюю известную конфигурацию, иначе повторить
+     * попытку через {@link Const#RECONNECT_INTERVAL}. Поток сторожа общий для
+     * всех устройств, поэтому ждать появления порта в нём нельзя - попытка
+     * заново ставится в расписание.
+     */
+    private void tryReconnect() {
+        boolean retry = false;
+        try {
+            if (stop) {
+                return;
+            }
+            boolean opened = false;
+            if (port.isPresent()) {
+                synchronized (portLock) {
+                    if (stop) {
+                        return;
                     }
-                } catch (InterruptedException th) {
-                    Logger.getLogger(DeviceController.class.getName()).log(Level.SEVERE, "Ошибка обработки данных от устройства!", th);
-                } finally {
-                    // закрыть за собой порт
-                    if (port.isOpened()) {
-                        try {
-                            port.closePort();
-                        } catch (SerialPortException ex) {
-                            Logger.getLogger(DeviceController.class.getName()).log(Level.SEVERE, "Ошибка закрытия порта", ex);
-                        }
+                    try {
+                        port.open(portListener);
+                        port.purge();
+                        opened = true;
+                    } catch (SerialPortException ex) {
+                        Logger.getLogger(DeviceController.class.getName()).log(Level.FINE, "Порт ещё не готов", ex);
                     }
-                    // очистить очереди с данными
-                    bytesQueue.clear();
-                    adcQueue.clear();
-                    // отрапортавать о завершении работы
-                    onStop.run();
                 }
+                if (!opened) {
+                    closePort(Level.FINE);
+                }
+            }
+            if (!opened) {
+                if (!stop) {
+                    WATCHDOG.schedule(reconnectTask, Const.RECONNECT_INTERVAL, TimeUnit.MILLISECONDS);
+                    retry = true;
+                }
+                return;
             }
-        });
-        th.start();
+            // восстановить последнюю известную конфигурацию устройства
+            commands.replay();
+            long now = System.nanoTime();
+            lastBlockTime = now;
+            long time = TimeUnit.NANOSECONDS.toMillis(now - reconnectStarted);
+            lastReconnectTime = time;
+            reconnectTime += time;
+            lostBlocks += Math.round((now - reconnectStarted + reconnectStalled) / 1e9 / getExpectedBlockPeriod());
+            reconnects++;
+            Logger.getLogger(DeviceController.class.getName()).log(Level.INFO, "Устройство {0} переподключено за {1} мс", new Object[]{deviceId, time});
+        } finally {
+            if (!retry) {
+                reconnecting.set(false);
+            }
+        }
     }
 
     /**
-     * Отключить устройство. Работа потока обработки данных от устройсва
-     * прекращается
+     * Возвращает количество автоматических переподключений устройства
      *
-     * @throws SerialPortException
+     * @return количество переподключений
+     */
+    long getReconnects() {
+        return reconnects;
+    }
+
+    /**
+     * Возвращает суммарное время переподключений
+     *
+     * @return время, мсек
+     */
+    long getReconnectTime() {
+        return reconnectTime;
+    }
+
+    /**
+     * Возвращает время последнего переподключения
+     *
+     * @return время, мсек
+     */
+    long getLastReconnectTime() {
+        return lastReconnectTime;
+    }
+
+    /**
+     * Возвращает оценку количества блоков, не полученных из-за зависаний
+     * связи и переподключений
+     *
+     * @return количество потерянных блоков
+     */
+    long getLostBlocks() {
+        return lostBlocks;
+    }
+
+    /**
+     * Отключить устройство. Обработка данных от устройства прекращается, не
+     * дожидаясь очередного блока данных, порт закрывается и вызывается onStop.
      */
     void close() {
         stop = true;
+        scheduleProcessing();
+    }
+
+    /**
+     * Поставить обработку поступивших данных в очередь общего исполнителя,
+     * если она ещё не поставлена. Одновременно выполняется не больше одной
+     * задачи обработки на устройство, поэтому разборщик и кадры не требуют
+     * блокировок, а медленное устройство занимает не больше одного потока.
+     */
+    private void scheduleProcessing() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(processingTask);
+        }
+    }
+
+    /**
+     * Задача обработки: обрабатывает накопившиеся блоки, но не больше ёмкости
+     * кольца за раз, и завершается, освобождая поток исполнителя для других
+     * устройств. Если блоки остались, задача снова ставится в конец очереди
+     * исполнителя. При остановке закрывает порт.
+     */
+    private final Runnable processingTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                BlockRing.Block block;
+                int limit = bytesRing.getCapacity();
+                while (!stop && limit-- > 0 && (block = bytesRing.poll()) != null) {
+                    processAdcData(block);
+                }
+                if (stop && running.compareAndSet(true, false)) {
+                    shutdown();
+                }
+            } finally {
+                scheduled.set(false);
+                // блоки могли поступить после последней проверки
+                if ((!stop && bytesRing.size() > 0) || (stop && running.get())) {
+                    scheduleProcessing();
+                }
+            }
+        }
+    };
+
+    /**
+     * Закрыть порт, очистить очереди и сообщить о завершении работы
+     */
+    private void shutdown() {
+        ScheduledFuture<?> f = watchdogFuture;
+        if (f != null) {
+            f.cancel(false);
+            watchdogFuture = null;
+        }
+        commands.stop();
+        // закрыть за собой порт
+        closePort(Level.SEVERE);
+        // очистить очереди с данными
+        bytesRing.clear();
+        Result r;
+        while ((r = adcQueue.poll()) != null) {
+            resultPool.release(r);
+        }
+        // отрапортавать о завершении работы
+        onStop.run();
     }
 
     /**
@@ -170,7 +663,9 @@ public class DeviceController {
     }
 
     /**
-     * Возвращает очередную порцию данных из очереди результатов
+     * Возвращает очередную порцию данных из очереди результатов. Результат
+     * принадлежит вызывающему и должен быть возвращён через
+     * {@link #releaseResult(Result)}.
      *
      * @return результат очередного считывания
      * @throws InterruptedException
@@ -180,108 +675,242 @@ public class DeviceController {
     }
 
     /**
-     * Блокировка для переключений времени развёртки и пределов напряжений.
-     * Важно не давать изменять пределы измерений и время развёртки пока
-     * происходит вычисление напряжений, иначе данные будут неправильно
-     * интерпретированы.
+     * Количество результатов, пропущенных потребителем ради более свежих
      */
-    private final ReentrantLock lock = new ReentrantLock();
+    private volatile long skippedResults;
 
     /**
-     * текущий предел измерений напряжения
+     * Возвращает количество результатов, пропущенных при получении самого
+     * свежего результата
+     *
+     * @return количество пропущенных результатов
      */
-    private int currentVoltageIndex;
+    long getSkippedResults() {
+        return skippedResults;
+    }
 
     /**
-     * Сменить предел напряжения
+     * Возвращает самый свежий результат, ожидая его, если очередь пуста.
+     * Более старые результаты из очереди возвращаются в пул. Так потребитель,
+     * который медленнее устройства, всегда показывает последние данные, а
+     * очередь не переполняется. Результат принадлежит вызывающему и должен
+     * быть возвращён через {@link #releaseResult(Result)}.
      *
-     * @param voltageIndex индекс предела напряжения
-     * @throws SerialPortException
+     * @return самый свежий результат
+     * @throws InterruptedException
      */
-    void switchVoltage(int voltageIndex) throws SerialPortException {
-        try {
-            lock.lock();
-            port.writeByte((byte) 0xAA);
-            port.writeByte((byte) 0xAB);
-            port.writeByte((byte) (50 + voltageIndex));
-            currentVoltageIndex = voltageIndex;
-        } finally {
-            lock.unlock();
+    Result getLatestADCResult() throws InterruptedException {
+        Result r = adcQueue.take();
+        Result newer;
+        while ((newer = adcQueue.poll()) != null) {
+            resultPool.release(r);
+            skippedResults++;
+            r = newer;
         }
+        return r;
+    }
+
+    /**
+     * Возвращает очередную порцию данных, ожидая её не дольше заданного
+     * времени
+     *
+     * @param timeout время ожидания, нсек
+     * @return результат очередного считывания или null если данных нет
+     * @throws InterruptedException
+     */
+    Result pollADCResult(long timeout) throws InterruptedException {
+        return adcQueue.poll(timeout, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Текущие настройки устройства. Изменяются только потоком отправки команд
+     * после того, как команда ушла в устройство, и копируются в каждый
+     * поступивший блок данных, поэтому поток обработки не нуждается в
+     * блокировках.
+     */
+    private volatile AcquisitionSettings settings = AcquisitionSettings.INITIAL;
+
+    /**
+     * Количество кадров, отброшенных из-за того, что настройки изменились
+     * во время их сборки
+     */
+    private volatile long staleFrames;
+
+    /**
+     * Возвращает количество кадров, отброшенных из-за смены настроек во время
+     * их получения
+     *
+     * @return количество отброшенных кадров
+     */
+    long getStaleFrames() {
+        return staleFrames;
+    }
+
+    /**
+     * Значение последней поставленной в очередь команды, пока команда ещё не
+     * отправлялась или устройство переоткрыто
+     */
+    private static final int NOT_SENT = Integer.MIN_VALUE;
+
+    /**
+     * Последний заказанный предел напряжения
+     */
+    private volatile int sentVoltage = NOT_SENT;
+
+    /**
+     * Последнее заказанное время развёртки
+     */
+    private volatile int sentTime = NOT_SENT;
+
+    /**
+     * Последний заказанный режим входа (первый байт команды)
+     */
+    private volatile int sentInput = NOT_SENT;
+
+    /**
+     * Последний заказанный режим синхронизации (команда, уровень и фронт,
+     * упакованные в одно число)
+     */
+    private volatile int sentSync = NOT_SENT;
+
+    /**
+     * Последний заказанный уровень смещения нуля
+     */
+    private volatile int sentZeroLevel = NOT_SENT;
+
+    /**
+     * Забыть заказанные настройки, чтобы при следующем вызове они были
+     * отправлены заново
+     */
+    private void invalidateSentState() {
+        sentVoltage = NOT_SENT;
+        sentTime = NOT_SENT;
+        sentInput = NOT_SENT;
+        sentSync = NOT_SENT;
+        sentZeroLevel = NOT_SENT;
     }
 
     /**
-     * Текущее время развёртки
+     * Очередь команд устройству. Команды отправляются отдельным потоком, каждая
+     * одной записью в порт, устаревшие команды заменяются новыми.
      */
-    private int currentTimeIndex;
+    private final CommandQueue commands = new CommandQueue(new CommandQueue.Sender() {
+        @Override
+        public void send(CommandQueue.Type type, int value, byte[] command) throws SerialPortException {
+            try {
+                port.writeBytes(command);
+                // блоки, поступившие после этого момента, получены уже с новыми настройками
+                settings = settings.with(type, value);
+            } catch (SerialPortException ex) {
+                // команда не дошла, при следующем обновлении отправить заново
+                invalidateSentState();
+                throw ex;
+            }
+        }
+    }, AppProperties.getCommandGap());
+
+    /**
+     * Дождаться отправки в устройство всех заказанных команд
+     *
+     * @param timeout тайм-аут, мсек
+     * @return true если все команды отправлены
+     * @throws InterruptedException
+     */
+    boolean flushCommands(long timeout) throws InterruptedException {
+        return commands.awaitIdle(timeout);
+    }
+
+    /**
+     * Возвращает количество команд, заменённых более новыми до отправки в
+     * устройство
+     *
+     * @return количество объединённых команд
+     */
+    long getCoalescedCommands() {
+        return commands.getCoalesced();
+    }
+
+    /**
+     * Сменить предел напряжения
+     *
+     * @param voltageIndex индекс предела напряжения
+     */
+    void switchVoltage(int voltageIndex) {
+        if (sentVoltage != voltageIndex) {
+            sentVoltage = voltageIndex;
+            commands.submit(CommandQueue.Type.VOLTAGE, voltageIndex, (byte) 0xAA, (byte) 0xAB, (byte) (50 + voltageIndex));
+        }
+    }
 
     /**
      * Переключение времени развёртки
      *
      * @param timeIndex индекс времени развёртки
      */
-    void switchTime(int timeIndex) throws SerialPortException {
-        try {
-            lock.lock();
-            port.writeByte((byte) 0xAC);
-            port.writeByte((byte) 0xAD);
-            port.writeByte((byte) (20 + timeIndex));
-            currentTimeIndex = timeIndex;
-        } finally {
-            lock.unlock();
+    void switchTime(int timeIndex) {
+        if (sentTime != timeIndex) {
+            sentTime = timeIndex;
+            commands.submit(CommandQueue.Type.TIME, timeIndex, (byte) 0xAC, (byte) 0xAD, (byte) (20 + timeIndex));
         }
     }
 
     /**
-     * Переключает вход на постоянное напряжение
+     * Переключить режим входа, если он отличается от заказанного ранее
      *
-     * @throws SerialPortException
+     * @param first первый байт команды
+     * @param second второй байт команды
+     */
+    private void switchInput(int first, int second) {
+        if (sentInput != first) {
+            sentInput = first;
+            commands.submit(CommandQueue.Type.INPUT, first, (byte) first, (byte) second);
+        }
+    }
+
+    /**
+     * Переключает вход на постоянное напряжение
      */
-    void switchInputToDc() throws SerialPortException {
-        port.writeByte((byte) 0xBE);
-        port.writeByte((byte) 0xBF);
+    void switchInputToDc() {
+        switchInput(0xBE, 0xBF);
     }
 
     /**
      * Переключает вход на переменное напряжение
-     *
-     * @throws SerialPortException
      */
-    void switchInputToAc() throws SerialPortException {
-        port.writeByte((byte) 0xBA);
-        port.writeByte((byte) 0xBB);
+    void switchInputToAc() {
+        switchInput(0xBA, 0xBB);
     }
 
     /**
      * Переключает вход на землю
-     *
-     * @throws SerialPortException
      */
-    void switchInputToGnd() throws SerialPortException {
-        port.writeByte((byte) 0xBC);
-        port.writeByte((byte) 0xBD);
+    void switchInputToGnd() {
+        switchInput(0xBC, 0xBD);
     }
 
     /**
      * Отключить синхронизацию
-     *
-     * @throws SerialPortException
      */
-    void switchSyncToNone() throws SerialPortException {
-        port.writeByte((byte) 0xCE);
-        port.writeByte((byte) 0xCF);
+    void switchSyncToNone() {
+        int sync = 0xCE << 16;
+        if (sentSync != sync) {
+            sentSync = sync;
+            commands.submit(CommandQueue.Type.SYNC, sync, (byte) 0xCE, (byte) 0xCF);
+        }
     }
 
     /**
      * Включить автосинхронизацию
      *
      * @param edge по фронту (true) или по спаду (false) сигнала
-     * @throws SerialPortException
      */
-    void switchSyncToAuto(boolean edge) throws SerialPortException {
-        port.writeByte((byte) 0xCA);
-        port.writeByte((byte) 0xCB);
-        port.writeByte((byte) (edge ? 0x10 : 0x20));
+    void switchSyncToAuto(boolean edge) {
+        byte front = (byte) (edge ? 0x10 : 0x20);
+        int sync = 0xCA << 16 | front;
+        if (sentSync != sync) {
+            sentSync = sync;
+            commands.submit(CommandQueue.Type.SYNC, sync, (byte) 0xCA, (byte) 0xCB, front);
+        }
     }
 
     /**
@@ -289,25 +918,26 @@ public class DeviceController {
      *
      * @param level уровень 0-200
      * @param edge по фронту (true) или по спаду (false) сигнала
-     * @throws SerialPortException
      */
-    void switchSyncToLevel(int level, boolean edge) throws SerialPortException {
-        port.writeByte((byte) 0xCC);
-        port.writeByte((byte) 0xCD);
-        port.writeByte((byte) (level & 0xFF));
-        port.writeByte((byte) (edge ? 0x10 : 0x20));
+    void switchSyncToLevel(int level, boolean edge) {
+        byte front = (byte) (edge ? 0x10 : 0x20);
+        int sync = 0xCC << 16 | (level & 0xFF) << 8 | front;
+        if (sentSync != sync) {
+            sentSync = sync;
+            commands.submit(CommandQueue.Type.SYNC, sync, (byte) 0xCC, (byte) 0xCD, (byte) (level & 0xFF), front);
+        }
     }
 
     /**
      * Установить уровень смещения нуля
      *
      * @param level уровень
-     * @throws SerialPortException
      */
-    void setZeroLevel(int level) throws SerialPortException {
-        port.writeByte((byte) 0xDA);
-        port.writeByte((byte) 0xDB);
-        port.writeByte((byte) ((byte) level & 0xFF));
+    void setZeroLevel(int level) {
+        if (sentZeroLevel != level) {
+            sentZeroLevel = level;
+            commands.submit(CommandQueue.Type.ZERO_LEVEL, level, (byte) 0xDA, (byte) 0xDB, (byte) ((byte) level & 0xFF));
+        }
     }
 
     /**
@@ -335,23 +965,158 @@ public class DeviceController {
     }
 
     /**
-     * Обрабатывает данные от ЦАП
+     * Усреднение кадров, используется только задачей обработки
+     */
+    private final WaveformAverager averager = new WaveformAverager();
+
+    /**
+     * Количество усредняемых кадров, 1 - без усреднения
+     */
+    private volatile int averageFrames = 1;
+
+    /**
+     * Задать количество усредняемых кадров. Результаты содержат среднее по
+     * последним кадрам, полученным с теми же настройками.
      *
-     * @return объект с результатами обработки
-     * @throws InterruptedException
+     * @param frames количество кадров, 1 - без усреднения
+     */
+    void setAveraging(int frames) {
+        averageFrames = Math.max(1, frames);
+    }
+
+    /**
+     * Возвращает количество усредняемых кадров
+     *
+     * @return количество кадров, 1 - без усреднения
+     */
+    int getAveraging() {
+        return averageFrames;
+    }
+
+    /**
+     * Усреднить кадр с предыдущими, если включено усреднение
+     *
+     * @param r результат с проверенными данными кадра
+     */
+    private void average(Result r) {
+        int frames = averageFrames;
+        if (frames > 1) {
+            averager.setFrames(frames);
+            averager.add(r.getAdcData(), frameSettings.getEpoch());
+            r.setAveragedFrames(averager.getCount());
+        } else if (averager.getCount() > 0) {
+            // при повторном включении начать накопление заново
+            averager.reset();
+        }
+    }
+
+    /**
+     * Огибающая сигнала, используется только задачей обработки
+     */
+    private final EnvelopeTracker envelopeTracker = new EnvelopeTracker();
+
+    /**
+     * Режим огибающей
+     */
+    private volatile boolean envelope;
+
+    /**
+     * Включить или выключить режим огибающей
+     *
+     * @param envelope true - результаты содержат огибающую сигнала
+     * @param decay затухание, значений АЦП за кадр, 0 - без затухания
+     * @param resetInterval интервал сброса огибающей, мс, 0 - без сброса
+     */
+    void setEnvelope(boolean envelope, int decay, long resetInterval) {
+        envelopeTracker.setDecay(decay);
+        envelopeTracker.setResetInterval(resetInterval);
+        this.envelope = envelope;
+    }
+
+    /**
+     * Включен ли режим огибающей
+     *
+     * @return true если включен
+     */
+    boolean isEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * Дополнить результат огибающей, если включен режим огибающей
+     *
+     * @param r результат с данными кадра
+     */
+    private void trackEnvelope(Result r) {
+        if (envelope) {
+            envelopeTracker.add(r.getAdcData(), frameSettings.getEpoch(), System.currentTimeMillis());
+            r.setEnvelope(envelopeTracker.getMin(), envelopeTracker.getMax());
+        } else if (envelopeTracker.getCount() > 0) {
+            envelopeTracker.reset();
+        }
+    }
+
+    /**
+     * Поместить результат в очередь. Если очередь заполнена, самый старый
+     * результат отбрасывается и возвращается в пул.
+     *
+     * @param r результат
      */
-    private Result processAdcData() throws InterruptedException {
-        byte[] newBlock = bytesQueue.take();
+    private void offerResult(Result r) {
+        while (!adcQueue.offer(r)) {
+            Result old = adcQueue.poll();
+            if (old != null) {
+                resultPool.release(old);
+                droppedResults++;
+            }
+        }
+    }
+
+    /**
+     * Обрабатывает очередной блок байтов от АЦП. Байты разбираются на кадры,
+     * обработанные кадры помещаются в очередь результатов.
+     *
+     * @param newBlock блок байтов, возвращается в кольцо после обработки
+     */
+    private void processAdcData(BlockRing.Block newBlock) {
         try {
-            lock.lock();
-            // запись параметров выборки
-            Result r = new Result(currentVoltageIndex, currentTimeIndex);
-            if (r.processADCData(newBlock, autoFreq, autoMeasure)) {
-                return r;
+            if (parserResetRequired.getAndSet(false)) {
+                // поток байтов прерывался при переподключении
+                parser.reset();
+            }
+            // сдвиг графика по горизонтали
+            int offset = timeOffset.getAndSet(0);
+            parser.shift(Math.max(-Const.MAX_TIME_OFFSET, Math.min(Const.MAX_TIME_OFFSET, offset)));
+            AcquisitionSettings blockSettings = newBlock.settings;
+            if (!parser.isFrameEmpty() && frameSettings.getEpoch() != blockSettings.getEpoch()) {
+                // начало кадра получено со старыми настройками, такой кадр не
+                // пересчитать в напряжения
+                parser.nextFrame();
+                staleFrames++;
+            }
+            int pos = 0;
+            while (pos < newBlock.length) {
+                if (parser.isFrameEmpty()) {
+                    frameSettings = blockSettings;
+                }
+                pos += parser.feed(newBlock.data, pos, newBlock.length - pos);
+                if (parser.isFrameReady()) {
+                    // запись параметров выборки
+                    Result r = resultPool.acquire(frameSettings.getVoltageIndex(), frameSettings.getTimeIndex());
+                    r.setDeviceId(deviceId);
+                    r.setCalibration(calibration);
+                    if (r.processADCData(parser.getFrame(), autoFreq, autoMeasure)) {
+                        average(r);
+                        trackEnvelope(r);
+                        offerResult(r);
+                    } else {
+                        resultPool.release(r);
+                    }
+                    parser.nextFrame();
+                }
             }
-            return null;
         } finally {
-            lock.unlock();
+            bytesRing.release(newBlock);
         }
     }
 
@@ -0,0 +1,163 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import jssc.SerialPortException;
+
+/**
+ * Менеджер устройств. Позволяет работать с несколькими осциллографами из
+ * одного процесса: каждое устройство получает собственный контроллер, а
+ * обработка данных от всех устройств выполняется общим ограниченным пулом
+ * потоков. Контроллер ставит в пул не больше одной задачи за раз, поэтому
+ * медленное устройство не занимает потоки, нужные остальным.
+ *
+ * @author Vasily Monakhov
+ */
+class DeviceManager {
+
+    /**
+     * Менеджер устройств по умолчанию
+     */
+    private static DeviceManager defaultManager;
+
+    /**
+     * Возвращает общий для приложения менеджер устройств
+     *
+     * @return менеджер устройств
+     */
+    static synchronized DeviceManager getDefault() {
+        if (defaultManager == null) {
+            defaultManager = new DeviceManager(AppProperties.getProcessingThreads());
+        }
+        return defaultManager;
+    }
+
+    /**
+     * Пул потоков для обработки данных
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Открытые устройства по идентификаторам
+     */
+    private final Map<String, DeviceController> devices = new LinkedHashMap<>();
+
+    /**
+     * Создаёт менеджер устройств
+     *
+     * @param threads количество потоков обработки данных
+     */
+    DeviceManager(int threads) {
+        final AtomicInteger number = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(Const.MAX_DEVICES),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread th = new Thread(r, "DeviceProcessing-" + number.incrementAndGet());
+                        th.setDaemon(true);
+                        return th;
+                    }
+                },
+                // очередь переполнена только если устройств больше чем
+                // MAX_DEVICES, тогда обработать в потоке порта
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Возвращает исполнитель для обработки данных от устройств
+     *
+     * @return исполнитель
+     */
+    Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Создаёт контроллер устройства, обрабатывающий данные в общем пуле
+     * потоков
+     *
+     * @param onStop что вызвать по завершении работы устройства
+     * @return контроллер устройства
+     */
+    DeviceController create(final Runnable onStop) {
+        final DeviceController[] dc = new DeviceController[1];
+        dc[0] = new DeviceController(new Runnable() {
+            @Override
+            public void run() {
+                synchronized (devices) {
+                    devices.values().remove(dc[0]);
+                }
+                onStop.run();
+            }
+        }, executor);
+        return dc[0];
+    }
+
+    /**
+     * Открыть устройство на заданном порту. Один порт не может быть открыт
+     * двумя контроллерами.
+     *
+     * @param dc контроллер, созданный через {@link #create(Runnable)}
+     * @param portName имя порта, оно же идентификатор устройства
+     * @throws SerialPortException
+     */
+    void open(DeviceController dc, String portName) throws SerialPortException {
+        synchronized (devices) {
+            if (devices.containsKey(portName)) {
+                throw new SerialPortException(portName, "open()", SerialPortException.TYPE_PORT_BUSY);
+            }
+            devices.put(portName, dc);
+        }
+        try {
+            dc.open(portName);
+        } catch (SerialPortException ex) {
+            synchronized (devices) {
+                devices.remove(portName);
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Возвращает контроллер открытого устройства
+     *
+     * @param deviceId идентификатор устройства
+     * @return контроллер или null если устройство не открыто
+     */
+    DeviceController get(String deviceId) {
+        synchronized (devices) {
+            return devices.get(deviceId);
+        }
+    }
+
+    /**
+     * Возвращает контроллеры всех открытых устройств
+     *
+     * @return список контроллеров
+     */
+    List<DeviceController> getDevices() {
+        synchronized (devices) {
+            return new ArrayList<>(devices.values());
+        }
+    }
+
+    /**
+     * Закрыть все устройства
+     */
+    void closeAll() {
+        for (DeviceController dc : getDevices()) {
+            dc.close();
+        }
+    }
+
+}
@@ -0,0 +1,106 @@
+package ua.com.kiloom.simplescope;
+
+import jssc.SerialPortException;
+import jssc.SerialPortTimeoutException;
+
+/**
+ * Канал связи с устройством. Скрывает от контроллера устройства, с чем именно
+ * он работает: с настоящим последовательным портом или с программной моделью
+ * устройства.
+ *
+ * @author Vasily Monakhov
+ */
+interface DeviceTransport {
+
+    /**
+     * Слушатель поступления данных от устройства
+     */
+    interface Listener {
+
+        /**
+         * Вызывается, когда от устройства поступили новые данные
+         *
+         * @param available количество байтов, доступных для чтения
+         */
+        void dataAvailable(int available);
+    }
+
+    /**
+     * Возвращает имя канала (имя порта)
+     *
+     * @return имя канала
+     */
+    String getName();
+
+    /**
+     * Присутствует ли канал в системе. Для последовательного порта проверяет,
+     * есть ли порт в списке портов, например после отключения USB.
+     *
+     * @return true если канал можно открыть
+     */
+    boolean isPresent();
+
+    /**
+     * Возвращает пропускную способность канала
+     *
+     * @return количество байтов в секунду
+     */
+    int getBytesPerSecond();
+
+    /**
+     * Открыть канал
+     *
+     * @param listener слушатель поступления данных
+     * @throws SerialPortException
+     */
+    void open(Listener listener) throws SerialPortException;
+
+    /**
+     * Открыт ли канал
+     *
+     * @return true если канал открыт
+     */
+    boolean isOpened();
+
+    /**
+     * Закрыть канал
+     *
+     * @throws SerialPortException
+     */
+    void close() throws SerialPortException;
+
+    /**
+     * Очистить входной буфер канала
+     *
+     * @throws SerialPortException
+     */
+    void purge() throws SerialPortException;
+
+    /**
+     * Прочитать заданное количество байтов в начало буфера
+     *
+     * @param buffer буфер для прочитанных байтов
+     * @param count количество байтов
+     * @param timeout тайм-аут, мсек
+     * @throws SerialPortException
+     * @throws SerialPortTimeoutException
+     */
+    void readBytes(byte[] buffer, int count, int timeout) throws SerialPortException, SerialPortTimeoutException;
+
+    /**
+     * Записать байт в устройство
+     *
+     * @param b байт
+     * @throws SerialPortException
+     */
+    void writeByte(byte b) throws SerialPortException;
+
+    /**
+     * Записать массив байтов в устройство
+     *
+     * @param bytes байты
+     * @throws SerialPortException
+     */
+    void writeBytes(byte[] bytes) throws SerialPortException;
+
+}
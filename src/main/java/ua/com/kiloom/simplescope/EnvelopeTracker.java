@@ -0,0 +1,139 @@
+package ua.com.kiloom.simplescope;
+
+/**
+ * Огибающая сигнала: для каждого отсчёта хранятся минимальное и максимальное
+ * значения АЦП по всем кадрам с момента сброса. Так видны короткие выбросы,
+ * которые попали только в один кадр. Границы могут со временем
+ * возвращаться к текущему сигналу (затухание) или сбрасываться через заданный
+ * интервал. При смене эпохи настроек огибающая сбрасывается.
+ *
+ * Все массивы выделяются заранее, обработка кадра память не выделяет.
+ * Экземпляр не потокобезопасен, им пользуется только поток обработки данных
+ * устройства.
+ *
+ * @author Vasily Monakhov
+ */
+class EnvelopeTracker {
+
+    /**
+     * Минимальные значения по отсчётам
+     */
+    private final int[] min = new int[Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Максимальные значения по отсчётам
+     */
+    private final int[] max = new int[Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Количество кадров с момента сброса
+     */
+    private int count;
+
+    /**
+     * Эпоха настроек накопленных кадров
+     */
+    private long epoch = -1;
+
+    /**
+     * Время сброса, мс
+     */
+    private long resetTime;
+
+    /**
+     * Затухание, значений АЦП за кадр, 0 - без затухания
+     */
+    private int decay;
+
+    /**
+     * Интервал сброса, мс, 0 - без сброса
+     */
+    private long resetInterval;
+
+    /**
+     * Задать затухание: на сколько значений АЦП за кадр границы
+     * приближаются к текущему сигналу
+     *
+     * @param decay затухание, 0 - без затухания
+     */
+    void setDecay(int decay) {
+        this.decay = Math.max(0, decay);
+    }
+
+    /**
+     * Задать интервал сброса огибающей
+     *
+     * @param resetInterval интервал, мс, 0 - без сброса
+     */
+    void setResetInterval(long resetInterval) {
+        this.resetInterval = Math.max(0, resetInterval);
+    }
+
+    /**
+     * Возвращает количество кадров с момента сброса
+     *
+     * @return количество кадров
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Сбросить огибающую
+     */
+    void reset() {
+        count = 0;
+        epoch = -1;
+    }
+
+    /**
+     * Добавить кадр
+     *
+     * @param data значения АЦП кадра
+     * @param epoch эпоха настроек, с которыми получен кадр
+     * @param time время получения кадра, мс
+     */
+    void add(int[] data, long epoch, long time) {
+        if (epoch != this.epoch || (resetInterval > 0 && time - resetTime >= resetInterval)) {
+            count = 0;
+            this.epoch = epoch;
+        }
+        if (count == 0) {
+            System.arraycopy(data, 0, min, 0, Const.ADC_DATA_BLOCK_SIZE);
+            System.arraycopy(data, 0, max, 0, Const.ADC_DATA_BLOCK_SIZE);
+            resetTime = time;
+            count = 1;
+            return;
+        }
+        int d = decay;
+        for (int i = 0; i < Const.ADC_DATA_BLOCK_SIZE; i++) {
+            int value = data[i];
+            int lo = min[i] + d;
+            int hi = max[i] - d;
+            min[i] = value < lo ? value : lo;
+            max[i] = value > hi ? value : hi;
+        }
+        count++;
+    }
+
+    /**
+     * Возвращает минимальные значения. Массив внутренний, изменять его
+     * нельзя.
+     *
+     * @return минимальные значения АЦП по отсчётам
+     */
+    int[] getMin() {
+        return min;
+    }
+
+    /**
+     * Возвращает максимальные значения. Массив внутренний, изменять его
+     * нельзя.
+     *
+     * @return максимальные значения АЦП по отсчётам
+     */
+    int[] getMax() {
+        return max;
+    }
+
+}
@@ -0,0 +1,263 @@
+package ua.com.kiloom.simplescope;
+
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Пул изображений для повторного использования. Свободные изображения
+ * хранятся раздельно по размеру и назначению, поэтому изображения графика и
+ * диаграммы гармоник не вытесняют друг друга при переключении вкладок.
+ * Суммарный размер свободных изображений ограничен количеством пикселей:
+ * при превышении первыми удаляются изображения, которые дольше всего не
+ * запрашивались. Когда для назначения запрошен новый размер, свободные
+ * изображения этого назначения с прежним размером удаляются - после
+ * изменения размеров окна они уже не понадобятся.
+ *
+ * Новые изображения создаются только через
+ * {@link GraphicsConfiguration#createCompatibleImage(int, int, int)}.
+ * Потокобезопасен.
+ *
+ * @author Vasily Monakhov
+ */
+class ImagePool {
+
+    /**
+     * Назначение изображения
+     */
+    enum Purpose {
+
+        /**
+         * График сигнала
+         */
+        SCOPE,
+        /**
+         * Диаграмма гармоник
+         */
+        HARMONICS,
+        /**
+         * Фон графика
+         */
+        BACKGROUND
+    }
+
+    /**
+     * Ключ пула: размер и назначение
+     */
+    private static final class Key {
+
+        /**
+         * Ширина
+         */
+        final int width;
+
+        /**
+         * Высота
+         */
+        final int height;
+
+        /**
+         * Назначение
+         */
+        final Purpose purpose;
+
+        /**
+         * Создаёт ключ
+         *
+         * @param width ширина
+         * @param height высота
+         * @param purpose назначение
+         */
+        Key(int width, int height, Purpose purpose) {
+            this.width = width;
+            this.height = height;
+            this.purpose = purpose;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key k = (Key) obj;
+            return width == k.width && height == k.height && purpose == k.purpose;
+        }
+
+        @Override
+        public int hashCode() {
+            return (width * 31 + height) * 31 + purpose.hashCode();
+        }
+    }
+
+    /**
+     * Свободные изображения по ключам, в порядке последнего обращения
+     */
+    private final Map<Key, ArrayDeque<BufferedImage>> free = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Наибольшее суммарное количество пикселей свободных изображений
+     */
+    private final long maxPixels;
+
+    /**
+     * Суммарное количество пикселей свободных изображений
+     */
+    private long freePixels;
+
+    /**
+     * Количество созданных изображений
+     */
+    private long created;
+
+    /**
+     * Количество повторно использованных изображений
+     */
+    private long reused;
+
+    /**
+     * Количество удалённых из пула изображений
+     */
+    private long evicted;
+
+    /**
+     * Создаёт пул
+     *
+     * @param maxPixels наибольшее суммарное количество пикселей свободных
+     * изображений
+     */
+    ImagePool(long maxPixels) {
+        this.maxPixels = maxPixels;
+    }
+
+    /**
+     * Возвращает изображение из пула или создаёт новое
+     *
+     * @param width ширина
+     * @param height высота
+     * @param purpose назначение
+     * @return изображение
+     */
+    BufferedImage acquire(int width, int height, Purpose purpose) {
+        Key key = new Key(width, height, purpose);
+        synchronized (this) {
+            ArrayDeque<BufferedImage> images = free.get(key);
+            if (images != null && !images.isEmpty()) {
+                freePixels -= (long) width * height;
+                reused++;
+                return images.pop();
+            }
+            // размер изменился, прежние изображения этого назначения не нужны
+            Iterator<Map.Entry<Key, ArrayDeque<BufferedImage>>> it = free.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<Key, ArrayDeque<BufferedImage>> e = it.next();
+                if (e.getKey().purpose == purpose && !e.getKey().equals(key)) {
+                    evict(e);
+                    it.remove();
+                }
+            }
+            created++;
+        }
+        // создавать вне блокировки
+        return createImage(width, height);
+    }
+
+    /**
+     * Вернуть изображение в пул
+     *
+     * @param image изображение, полученное из {@link #acquire}
+     * @param purpose назначение, с которым изображение было получено
+     */
+    synchronized void release(BufferedImage image, Purpose purpose) {
+        Key key = new Key(image.getWidth(), image.getHeight(), purpose);
+        ArrayDeque<BufferedImage> images = free.get(key);
+        if (images == null) {
+            images = new ArrayDeque<>();
+            free.put(key, images);
+        }
+        images.push(image);
+        freePixels += (long) key.width * key.height;
+        // удалять начиная с давно не запрашивавшихся размеров
+        Iterator<Map.Entry<Key, ArrayDeque<BufferedImage>>> it = free.entrySet().iterator();
+        while (freePixels > maxPixels && it.hasNext()) {
+            Map.Entry<Key, ArrayDeque<BufferedImage>> e = it.next();
+            ArrayDeque<BufferedImage> q = e.getValue();
+            while (freePixels > maxPixels && !q.isEmpty()) {
+                q.removeLast();
+                freePixels -= (long) e.getKey().width * e.getKey().height;
+                evicted++;
+            }
+            if (q.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Удалить все свободные изображения ключа
+     *
+     * @param e элемент карты свободных изображений
+     */
+    private void evict(Map.Entry<Key, ArrayDeque<BufferedImage>> e) {
+        int n = e.getValue().size();
+        freePixels -= (long) n * e.getKey().width * e.getKey().height;
+        evicted += n;
+    }
+
+    /**
+     * Создаёт новое изображение, совместимое с экраном
+     *
+     * @param width ширина
+     * @param height высота
+     * @return созданное изображение
+     */
+    BufferedImage createImage(int width, int height) {
+        GraphicsConfiguration gfx_config = GraphicsEnvironment.
+                getLocalGraphicsEnvironment().getDefaultScreenDevice().
+                getDefaultConfiguration();
+        BufferedImage image = gfx_config.createCompatibleImage(width, height, Transparency.OPAQUE);
+        image.setAccelerationPriority(1);
+        return image;
+    }
+
+    /**
+     * Возвращает суммарное количество пикселей свободных изображений
+     *
+     * @return количество пикселей
+     */
+    synchronized long getFreePixels() {
+        return freePixels;
+    }
+
+    /**
+     * Возвращает количество созданных изображений
+     *
+     * @return количество созданных изображений
+     */
+    synchronized long getCreated() {
+        return created;
+    }
+
+    /**
+     * Возвращает количество повторно использованных изображений
+     *
+     * @return количество повторных использований
+     */
+    synchronized long getReused() {
+        return reused;
+    }
+
+    /**
+     * Возвращает количество изображений, удалённых из пула
+     *
+     * @return количество удалённых изображений
+     */
+    synchronized long getEvicted() {
+        return evicted;
+    }
+
+}
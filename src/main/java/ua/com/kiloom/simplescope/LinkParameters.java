@@ -0,0 +1,139 @@
+package ua.com.kiloom.simplescope;
+
+import jssc.SerialPort;
+
+/**
+ * Параметры последовательного порта: скорость, количество бит данных, стоповых
+ * бит и чётность. Значения совпадают с константами {@link SerialPort}.
+ *
+ * @author Vasily Monakhov
+ */
+final class LinkParameters {
+
+    /**
+     * Скорость, бод
+     */
+    private final int baudRate;
+
+    /**
+     * Количество бит данных
+     */
+    private final int dataBits;
+
+    /**
+     * Стоповые биты, {@link SerialPort#STOPBITS_1}, {@link SerialPort#STOPBITS_1_5}
+     * или {@link SerialPort#STOPBITS_2}
+     */
+    private final int stopBits;
+
+    /**
+     * Чётность, {@link SerialPort#PARITY_NONE} и т.д.
+     */
+    private final int parity;
+
+    /**
+     * Создаёт параметры порта
+     *
+     * @param baudRate скорость, бод
+     * @param dataBits количество бит данных
+     * @param stopBits стоповые биты
+     * @param parity чётность
+     */
+    LinkParameters(int baudRate, int dataBits, int stopBits, int parity) {
+        this.baudRate = baudRate;
+        this.dataBits = dataBits;
+        this.stopBits = stopBits;
+        this.parity = parity;
+    }
+
+    /**
+     * Возвращает такие же параметры с другой скоростью
+     *
+     * @param baudRate скорость, бод
+     * @return параметры порта
+     */
+    LinkParameters withBaudRate(int baudRate) {
+        return new LinkParameters(baudRate, dataBits, stopBits, parity);
+    }
+
+    /**
+     * Возвращает скорость
+     *
+     * @return скорость, бод
+     */
+    int getBaudRate() {
+        return baudRate;
+    }
+
+    /**
+     * Возвращает количество бит данных
+     *
+     * @return количество бит данных
+     */
+    int getDataBits() {
+        return dataBits;
+    }
+
+    /**
+     * Возвращает стоповые биты
+     *
+     * @return константа стоповых бит {@link SerialPort}
+     */
+    int getStopBits() {
+        return stopBits;
+    }
+
+    /**
+     * Возвращает чётность
+     *
+     * @return константа чётности {@link SerialPort}
+     */
+    int getParity() {
+        return parity;
+    }
+
+    /**
+     * Возвращает пропускную способность порта с учётом стартового, стоповых
+     * бит и бита чётности
+     *
+     * @return количество байтов в секунду
+     */
+    int getBytesPerSecond() {
+        double bits = 1 + dataBits + (parity == SerialPort.PARITY_NONE ? 0 : 1);
+        switch (stopBits) {
+            case SerialPort.STOPBITS_1_5:
+                bits += 1.5;
+                break;
+            case SerialPort.STOPBITS_2:
+                bits += 2;
+                break;
+            default:
+                bits += 1;
+        }
+        return (int) (baudRate / bits);
+    }
+
+    @Override
+    public String toString() {
+        String p;
+        switch (parity) {
+            case SerialPort.PARITY_ODD:
+                p = "O";
+                break;
+            case SerialPort.PARITY_EVEN:
+                p = "E";
+                break;
+            case SerialPort.PARITY_MARK:
+                p = "M";
+                break;
+            case SerialPort.PARITY_SPACE:
+                p = "S";
+                break;
+            default:
+                p = "N";
+        }
+        String s = stopBits == SerialPort.STOPBITS_1_5 ? "1.5" : String.valueOf(stopBits);
+        return baudRate + " " + dataBits + p + s;
+    }
+
+}
@@ -0,0 +1,165 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jssc.SerialPortException;
+
+/**
+ * Проверка пропускной способности связи с устройством. На каждой скорости
+ * порта принимает данные в течение заданного времени и считает, сколько
+ * кадров в секунду удалось получить и были ли потери границ слов. Связь на
+ * скорости, которую устройство не поддерживает, выдаёт мусор и считается
+ * нестабильной.
+ *
+ * @author Vasily Monakhov
+ */
+class LinkSelfTest {
+
+    /**
+     * Результат измерения на одной скорости
+     */
+    static class Measurement {
+
+        /**
+         * Параметры порта
+         */
+        final LinkParameters link;
+
+        /**
+         * Получено кадров в секунду
+         */
+        final double blocksPerSecond;
+
+        /**
+         * Количество потерь границ слов
+         */
+        final long resyncs;
+
+        /**
+         * Количество отброшенных байтов
+         */
+        final long discardedBytes;
+
+        /**
+         * Ошибка открытия порта или null
+         */
+        final String error;
+
+        /**
+         * Создаёт результат измерения
+         *
+         * @param link параметры порта
+         * @param blocksPerSecond кадров в секунду
+         * @param resyncs потерь границ слов
+         * @param discardedBytes отброшенных байтов
+         * @param error ошибка или null
+         */
+        Measurement(LinkParameters link, double blocksPerSecond, long resyncs, long discardedBytes, String error) {
+            this.link = link;
+            this.blocksPerSecond = blocksPerSecond;
+            this.resyncs = resyncs;
+            this.discardedBytes = discardedBytes;
+            this.error = error;
+        }
+
+        /**
+         * Стабильна ли связь: данные шли и не было ни одной потери границ
+         * слов
+         *
+         * @return true если связь стабильна
+         */
+        boolean isStable() {
+            return error == null && blocksPerSecond > 0 && resyncs == 0 && discardedBytes == 0;
+        }
+
+        @Override
+        public String toString() {
+            if (error != null) {
+                return link + ": " + error;
+            }
+            return String.format("%s: %.1f кадр/с%s", link, blocksPerSecond, isStable() ? "" : ", сбои " + resyncs);
+        }
+    }
+
+    /**
+     * Измерить пропускную способность через заданный канал связи
+     *
+     * @param link параметры порта, для отчёта
+     * @param transport канал связи
+     * @param duration длительность измерения, мсек
+     * @return результат измерения
+     * @throws InterruptedException
+     */
+    static Measurement measure(LinkParameters link, DeviceTransport transport, int duration) throws InterruptedException {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        DeviceController dc = new DeviceController(new Runnable() {
+            @Override
+            public void run() {
+                stopped.countDown();
+            }
+        });
+        try {
+            dc.open(transport);
+        } catch (SerialPortException ex) {
+            Logger.getLogger(LinkSelfTest.class.getName()).log(Level.FINE, "Порт не открылся", ex);
+            return new Measurement(link, 0, 0, 0, ex.getExceptionType());
+        }
+        try {
+            long start = System.nanoTime();
+            long end = start + TimeUnit.MILLISECONDS.toNanos(duration);
+            int frames = 0;
+            while (System.nanoTime() < end) {
+                Result r = dc.pollADCResult(end - System.nanoTime());
+                if (r != null) {
+                    dc.releaseResult(r);
+                    frames++;
+                }
+            }
+            double seconds = (System.nanoTime() - start) / 1e9;
+            return new Measurement(link, frames / seconds, dc.getResyncs(), dc.getDiscardedBytes(), null);
+        } finally {
+            dc.close();
+            stopped.await(Const.PORT_TIMEOUT, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Проверить связь на всех скоростях
+     *
+     * @param portName имя порта
+     * @param base параметры порта, у которых меняется скорость
+     * @param baudRates проверяемые скорости
+     * @param duration длительность измерения на одной скорости, мсек
+     * @return результаты измерений
+     * @throws InterruptedException
+     */
+    static List<Measurement> run(String portName, LinkParameters base, int[] baudRates, int duration) throws InterruptedException {
+        List<Measurement> results = new ArrayList<>();
+        for (int baudRate : baudRates) {
+            LinkParameters link = base.withBaudRate(baudRate);
+            results.add(measure(link, new SerialTransport(portName, link), duration));
+        }
+        return results;
+    }
+
+    /**
+     * Выбрать самую быструю стабильную скорость
+     *
+     * @param results результаты измерений
+     * @return лучший результат или null если стабильных нет
+     */
+    static Measurement pickFastest(List<Measurement> results) {
+        Measurement best = null;
+        for (Measurement m : results) {
+            if (m.isStable() && (best == null || m.blocksPerSecond > best.blocksPerSecond)) {
+                best = m;
+            }
+        }
+        return best;
+    }
+
+}
@@ -13,6 +13,9 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
 import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -47,10 +50,26 @@ public class MainFrame extends javax.swing.JFrame {
      */
     private ColorScheme colorScheme = AppProperties.getColorScheme();
 
+    /**
+     * Порт, с которым окно начинает работу сразу после открытия, или null
+     */
+    private final String initialPort;
+
     /**
      * Создаёт окно
      */
     public MainFrame() {
+        this(null);
+    }
+
+    /**
+     * Создаёт окно для работы с заданным портом
+     *
+     * @param initialPort порт, с которым начать работу сразу после открытия
+     * окна, или null
+     */
+    public MainFrame(String initialPort) {
+        this.initialPort = initialPort;
         initComponents();
         scopeParentPanel.add(scopeRenderPanel);
         harmParentPanel.add(harmRenderPanel);
@@ -71,6 +90,11 @@ public class MainFrame extends javax.swing.JFrame {
             public void windowOpened(WindowEvent e) {
                 searchPorts();
                 loadSetupFromProperties();
+                if (MainFrame.this.initialPort != null) {
+                    portsComboBox.setSelectedItem(MainFrame.this.initialPort);
+                    setTitle(getTitle() + " - " + MainFrame.this.initialPort);
+                    start();
+                }
             }
 
             @Override
@@ -91,10 +115,13 @@ public class MainFrame extends javax.swing.JFrame {
     private void searchPorts() {
         portsComboBox.removeAllItems();
         String[] portNames = SerialPortList.getPortNames();
-        if (portNames.length != 0) {
-            for (String portName : portNames) {
-                portsComboBox.addItem(portName);
-            }
+        for (String portName : portNames) {
+            portsComboBox.addItem(portName);
+        }
+        if (AppProperties.isSimulatorEnabled()) {
+            portsComboBox.addItem(SimulatedDevice.PORT_NAME);
+        }
+        if (portsComboBox.getItemCount() != 0) {
             startButton.setEnabled(true);
         } else {
             startButton.setEnabled(false);
@@ -104,7 +131,7 @@ public class MainFrame extends javax.swing.JFrame {
     /**
      * Класс управления устройством
      */
-    private final DeviceController deviceController = new DeviceController(new Runnable() {
+    private final DeviceController deviceController = DeviceManager.getDefault().create(new Runnable() {
         @Override
         public void run() {
             startButton.setEnabled(true);
@@ -137,9 +164,57 @@ public class MainFrame extends javax.swing.JFrame {
     }
 
     /**
-     * Текущий результат оцифровки сигнала
+     * Текущий результат оцифровки сигнала. Им владеет рабочий поток и
+     * заменяет его только под блокировкой {@link #resultLock}; обработчики
+     * окна берут его через {@link #takeCurrentResult()}.
+     */
+    private volatile Result currentResult;
+
+    /**
+     * Блокировка замены текущего результата и его отрисовки
+     */
+    private final Object resultLock = new Object();
+
+    /**
+     * Возвращает текущий результат, сделав вызывающего его владельцем, чтобы
+     * рабочий поток не вернул результат в пул, пока он используется.
+     * Результат нужно вернуть через {@link DeviceController#releaseResult}.
+     *
+     * @return текущий результат или null
      */
-    private Result currentResult;
+    private Result takeCurrentResult() {
+        synchronized (resultLock) {
+            Result r = currentResult;
+            deviceController.retainResult(r);
+            return r;
+        }
+    }
+
+    /**
+     * Возвращает копию изображения текущего результата. Копия делается под
+     * блокировкой отрисовки, поэтому изображение не может быть в это время
+     * возвращено в пул и перерисовано.
+     *
+     * @param scope true - изображение осциллограммы, false - спектра
+     * гармоник
+     * @return копия изображения или null если его нет
+     */
+    private BufferedImage copyCurrentImage(boolean scope) {
+        synchronized (resultLock) {
+            if (currentResult == null) {
+                return null;
+            }
+            BufferedImage image = scope ? currentResult.getScopeImage() : currentResult.getHarmImage();
+            if (image == null) {
+                return null;
+            }
+            BufferedImage copy = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics g = copy.getGraphics();
+            g.drawImage(image, 0, 0, null);
+            g.dispose();
+            return copy;
+        }
+    }
 
     /**
      * Код, исполняемый в рабочем потоке
@@ -159,7 +234,7 @@ public class MainFrame extends javax.swing.JFrame {
                             enableStepButtons(true);
                             continue;
                         }
-                        deviceController.getADCResult();
+                        deviceController.releaseResult(deviceController.getADCResult());
                     }
                 }
             } catch (InterruptedException ex) {
@@ -174,18 +249,68 @@ public class MainFrame extends javax.swing.JFrame {
      * @throws InterruptedException
      */
     void makePicture() throws InterruptedException {
-        currentResult = deviceController.getADCResult();
+        waitNextFrame();
+        // пока шла отрисовка, устройство могло прислать несколько
+        // результатов - показать только последний
+        Result r = deviceController.getLatestADCResult();
+        Result old;
+        synchronized (resultLock) {
+            old = currentResult;
+            currentResult = r;
+        }
+        // если прежний результат взял обработчик окна, в пул он вернётся
+        // после него
+        deviceController.releaseResult(old);
         drawResults();
         autoDcModeAdjust();
         autoLimitModeAdjust();
     }
 
+    /**
+     * Частота отрисовки, кадров в секунду
+     */
+    private volatile int renderFps = Const.RENDER_FPS;
+
+    /**
+     * Время начала следующего кадра по {@link System#nanoTime()}
+     */
+    private long nextFrameTime;
+
+    /**
+     * Подождать начала следующего кадра, чтобы отрисовка шла не чаще
+     * заданной частоты. Получение и обработка данных устройства идут в
+     * потоках контроллера и от этого ожидания не зависят.
+     *
+     * @throws InterruptedException
+     */
+    private void waitNextFrame() throws InterruptedException {
+        long now = System.nanoTime();
+        long delay = nextFrameTime - now;
+        if (delay > 0) {
+            TimeUnit.NANOSECONDS.sleep(delay);
+            now = nextFrameTime;
+        }
+        nextFrameTime = now + TimeUnit.SECONDS.toNanos(1) / renderFps;
+    }
+
     /**
      * Отображает результаты
      *
      * @throws InterruptedException
      */
     private void drawResults() throws InterruptedException {
+        synchronized (resultLock) {
+            drawCurrentResult();
+        }
+    }
+
+    /**
+     * Отображает текущий результат, вызывается под блокировкой
+     * {@link #resultLock}
+     *
+     * @throws InterruptedException
+     */
+    private void drawCurrentResult() throws InterruptedException {
         if (currentResult != null) {
             if (tabbedPane.getSelectedComponent() == scopeParentPanel) {
                 Rectangle r = scopeRenderPanel.getBounds();
@@ -230,7 +355,7 @@ public class MainFrame extends javax.swing.JFrame {
                     workThread = new Thread(runer);
                     workThread.start();
                 }
-                deviceController.open((String) portsComboBox.getSelectedItem());
+                DeviceManager.getDefault().open(deviceController, (String) portsComboBox.getSelectedItem());
                 updateDeviceSettings();
             } catch (SerialPortException ex) {
                 LOGGER.log(Level.SEVERE, "Ошибка запуска", ex);
@@ -249,12 +374,12 @@ public class MainFrame extends javax.swing.JFrame {
     /**
      * Панель для отображения графика
      */
-    private final RenderPanel scopeRenderPanel = new RenderPanel();
+    private final RenderPanel scopeRenderPanel = new RenderPanel(ImagePool.Purpose.SCOPE);
 
     /**
      * Панель для отображения диаграммы гармоник
      */
-    private final RenderPanel harmRenderPanel = new RenderPanel();
+    private final RenderPanel harmRenderPanel = new RenderPanel(ImagePool.Purpose.HARMONICS);
 
     /**
      * Отобразить результаты измерений
@@ -339,20 +464,16 @@ public class MainFrame extends javax.swing.JFrame {
      * Обновить вход на устройстве
      */
     private void updateInputMode() {
-        try {
-            switch (inputMode) {
-                case AC:
-                    deviceController.switchInputToAc();
-                    break;
-                case GND:
-                    deviceController.switchInputToGnd();
-                    break;
-                case DC:
-                    deviceController.switchInputToDc();
-                    break;
-            }
-        } catch (SerialPortException ex) {
-            LOGGER.log(Level.SEVERE, "Ошибка смены входа", ex);
+        switch (inputMode) {
+            case AC:
+                deviceController.switchInputToAc();
+                break;
+            case GND:
+                deviceController.switchInputToGnd();
+                break;
+            case DC:
+                deviceController.switchInputToDc();
+                break;
         }
     }
 
@@ -369,20 +490,16 @@ public class MainFrame extends javax.swing.JFrame {
      * Обновить режим синхронизации на устройстве
      */
     private void updateSynchro() {
-        try {
-            switch (synchMode) {
-                case AUTO:
-                    deviceController.switchSyncToAuto(triggerMode);
-                    break;
-                case NONE:
-                    deviceController.switchSyncToNone();
-                    break;
-                case MANUAL:
-                    deviceController.switchSyncToLevel(triggerLevel, triggerMode);
-                    break;
-            }
-        } catch (SerialPortException ex) {
-            LOGGER.log(Level.SEVERE, "Ошибка смены режима синхронизации", ex);
+        switch (synchMode) {
+            case AUTO:
+                deviceController.switchSyncToAuto(triggerMode);
+                break;
+            case NONE:
+                deviceController.switchSyncToNone();
+                break;
+            case MANUAL:
+                deviceController.switchSyncToLevel(triggerLevel, triggerMode);
+                break;
         }
     }
 
@@ -422,11 +539,7 @@ public class MainFrame extends javax.swing.JFrame {
      * Установить период развёртки в устройстве
      */
     private void updatePeriod() {
-        try {
-            deviceController.switchTime(currentPeriod);
-        } catch (SerialPortException ex) {
-            LOGGER.log(Level.SEVERE, "Ошибка смены времени развёртки", ex);
-        }
+        deviceController.switchTime(currentPeriod);
     }
 
     /**
@@ -447,11 +560,7 @@ public class MainFrame extends javax.swing.JFrame {
      * Обновить предел измерения на устройстве
      */
     private void updateRange() {
-        try {
-            deviceController.switchVoltage(currentRange);
-        } catch (SerialPortException ex) {
-            LOGGER.log(Level.SEVERE, "Ошибка смены предела измерений", ex);
-        }
+        deviceController.switchVoltage(currentRange);
     }
 
     /**
@@ -467,11 +576,7 @@ public class MainFrame extends javax.swing.JFrame {
      * Обновить смещение входа на устройстве
      */
     private void updateDcOffset() {
-        try {
-            deviceController.setZeroLevel(dcLevel);
-        } catch (SerialPortException ex) {
-            LOGGER.log(Level.SEVERE, "Ошибка изменения смещения", ex);
-        }
+        deviceController.setZeroLevel(dcLevel);
     }
 
     /**
@@ -619,6 +724,16 @@ public class MainFrame extends javax.swing.JFrame {
         jPanel1 = new javax.swing.JPanel();
         continuousCheckBox = new javax.swing.JCheckBox();
         stepButton = new javax.swing.JButton();
+        averageCheckBox = new javax.swing.JCheckBox();
+        averageSpinner = new javax.swing.JSpinner();
+        envelopeCheckBox = new javax.swing.JCheckBox();
+        envelopeDecaySpinner = new javax.swing.JSpinner();
+        persistenceCheckBox = new javax.swing.JCheckBox();
+        persistenceDecaySpinner = new javax.swing.JSpinner();
+        interpolationCheckBox = new javax.swing.JCheckBox();
+        fpsLabel = new javax.swing.JLabel();
+        fpsSpinner = new javax.swing.JSpinner();
+        directRayCheckBox = new javax.swing.JCheckBox();
         jPanel11 = new javax.swing.JPanel();
         imageButton = new javax.swing.JButton();
         txtButton = new javax.swing.JButton();
@@ -683,12 +798,19 @@ public class MainFrame extends javax.swing.JFrame {
         harmCountSpinner = new javax.swing.JSpinner();
         harmRenderSpinner = new javax.swing.JSpinner();
         harmDbCheckBox = new javax.swing.JCheckBox();
+        jLabel8 = new javax.swing.JLabel();
+        spectrumWindowComboBox = new javax.swing.JComboBox();
         filler2 = new javax.swing.Box.Filler(new java.awt.Dimension(0, 0), new java.awt.Dimension(0, 0), new java.awt.Dimension(32767, 32767));
         jPanel23 = new javax.swing.JPanel();
         jLabel5 = new javax.swing.JLabel();
         imageFormatComboBox = new javax.swing.JComboBox();
         jLabel6 = new javax.swing.JLabel();
         textCharsetComboBox = new javax.swing.JComboBox();
+        jPanel24 = new javax.swing.JPanel();
+        jLabel7 = new javax.swing.JLabel();
+        baudRateComboBox = new javax.swing.JComboBox();
+        linkTestButton = new javax.swing.JButton();
+        linkTestLabel = new javax.swing.JLabel();
 
         setDefaultCloseOperation(javax.swing.WindowConstants.EXIT_ON_CLOSE);
         setTitle("Simplescope v3");
@@ -1169,6 +1291,164 @@ public class MainFrame extends javax.swing.JFrame {
         gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
         jPanel1.add(stepButton, gridBagConstraints);
 
+        averageCheckBox.setFont(fontScheme.getGuiFont());
+        averageCheckBox.setText("Усреднение");
+        averageCheckBox.setToolTipText("Усреднять последние кадры для подавления шума");
+        averageCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                averageCheckBoxActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 1;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(averageCheckBox, gridBagConstraints);
+
+        averageSpinner.setFont(fontScheme.getGuiFont());
+        averageSpinner.setModel(new javax.swing.SpinnerNumberModel(16, 2, 1024, 1));
+        averageSpinner.setToolTipText("Количество усредняемых кадров");
+        averageSpinner.addChangeListener(new javax.swing.event.ChangeListener() {
+            public void stateChanged(javax.swing.event.ChangeEvent evt) {
+                averageSpinnerStateChanged(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 1;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(averageSpinner, gridBagConstraints);
+
+        envelopeCheckBox.setFont(fontScheme.getGuiFont());
+        envelopeCheckBox.setText("Огибающая");
+        envelopeCheckBox.setToolTipText("Показывать минимумы и максимумы сигнала по всем кадрам");
+        envelopeCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                envelopeCheckBoxActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 2;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(envelopeCheckBox, gridBagConstraints);
+
+        envelopeDecaySpinner.setFont(fontScheme.getGuiFont());
+        envelopeDecaySpinner.setModel(new javax.swing.SpinnerNumberModel(0, 0, 4095, 1));
+        envelopeDecaySpinner.setToolTipText("Затухание огибающей, значений АЦП за кадр (0 - без затухания)");
+        envelopeDecaySpinner.addChangeListener(new javax.swing.event.ChangeListener() {
+            public void stateChanged(javax.swing.event.ChangeEvent evt) {
+                envelopeDecaySpinnerStateChanged(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 2;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(envelopeDecaySpinner, gridBagConstraints);
+
+        persistenceCheckBox.setFont(fontScheme.getGuiFont());
+        persistenceCheckBox.setText("Послесвечение");
+        persistenceCheckBox.setToolTipText("Накапливать луч с яркостью по частоте попаданий");
+        persistenceCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                persistenceCheckBoxActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 3;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(persistenceCheckBox, gridBagConstraints);
+
+        persistenceDecaySpinner.setFont(fontScheme.getGuiFont());
+        persistenceDecaySpinner.setModel(new javax.swing.SpinnerNumberModel(10, 0, 99, 1));
+        persistenceDecaySpinner.setToolTipText("Затухание послесвечения, процентов за кадр (0 - бесконечное)");
+        persistenceDecaySpinner.addChangeListener(new javax.swing.event.ChangeListener() {
+            public void stateChanged(javax.swing.event.ChangeEvent evt) {
+                persistenceDecaySpinnerStateChanged(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 3;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(persistenceDecaySpinner, gridBagConstraints);
+
+        interpolationCheckBox.setFont(fontScheme.getGuiFont());
+        interpolationCheckBox.setSelected(true);
+        interpolationCheckBox.setText("Интерполяция sin(x)/x");
+        interpolationCheckBox.setToolTipText("Интерполировать луч, если отсчётов меньше, чем пикселей");
+        interpolationCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                interpolationCheckBoxActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 4;
+        gridBagConstraints.gridwidth = 2;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(interpolationCheckBox, gridBagConstraints);
+
+        fpsLabel.setFont(fontScheme.getGuiFont());
+        fpsLabel.setLabelFor(fpsSpinner);
+        fpsLabel.setText("Кадров в секунду");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 5;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(fpsLabel, gridBagConstraints);
+
+        fpsSpinner.setFont(fontScheme.getGuiFont());
+        fpsSpinner.setModel(new javax.swing.SpinnerNumberModel(30, 1, 200, 1));
+        fpsSpinner.setToolTipText("Наибольшая частота отрисовки графика");
+        fpsSpinner.addChangeListener(new javax.swing.event.ChangeListener() {
+            public void stateChanged(javax.swing.event.ChangeEvent evt) {
+                fpsSpinnerStateChanged(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 5;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(fpsSpinner, gridBagConstraints);
+
+        directRayCheckBox.setFont(fontScheme.getGuiFont());
+        directRayCheckBox.setText("Программная отрисовка луча");
+        directRayCheckBox.setToolTipText("Рисовать луч прямо в изображение, быстрее без аппаратного ускорения");
+        directRayCheckBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                directRayCheckBoxActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 6;
+        gridBagConstraints.gridwidth = 2;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel1.add(directRayCheckBox, gridBagConstraints);
+
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 0;
         gridBagConstraints.gridy = 1;
@@ -1822,6 +2102,33 @@ public class MainFrame extends javax.swing.JFrame {
         gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
         jPanel22.add(harmDbCheckBox, gridBagConstraints);
 
+        jLabel8.setFont(fontScheme.getGuiFont());
+        jLabel8.setLabelFor(spectrumWindowComboBox);
+        jLabel8.setText("Окно");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 3;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel22.add(jLabel8, gridBagConstraints);
+
+        spectrumWindowComboBox.setFont(fontScheme.getGuiFont());
+        spectrumWindowComboBox.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "Прямоугольное", "Ханна", "Хэмминга", "Блэкмана-Харриса", "С плоской вершиной" }));
+        spectrumWindowComboBox.setToolTipText("Оконная функция для анализа гармоник");
+        spectrumWindowComboBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                spectrumWindowComboBoxActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 3;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel22.add(spectrumWindowComboBox, gridBagConstraints);
+
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 1;
         gridBagConstraints.gridy = 0;
@@ -1830,7 +2137,7 @@ public class MainFrame extends javax.swing.JFrame {
         setupPanel.add(jPanel22, gridBagConstraints);
         gridBagConstraints = new java.awt.GridBagConstraints();
         gridBagConstraints.gridx = 1;
-        gridBagConstraints.gridy = 2;
+        gridBagConstraints.gridy = 3;
         gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
         gridBagConstraints.weightx = 1.0;
         gridBagConstraints.weighty = 1.0;
@@ -1905,6 +2212,70 @@ public class MainFrame extends javax.swing.JFrame {
         gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
         setupPanel.add(jPanel23, gridBagConstraints);
 
+        jPanel24.setBorder(javax.swing.BorderFactory.createTitledBorder(null, "Связь", javax.swing.border.TitledBorder.DEFAULT_JUSTIFICATION, javax.swing.border.TitledBorder.DEFAULT_POSITION, fontScheme.getBorderFont()));
+        jPanel24.setLayout(new java.awt.GridBagLayout());
+
+        jLabel7.setFont(fontScheme.getGuiFont());
+        jLabel7.setLabelFor(baudRateComboBox);
+        jLabel7.setText("Скорость, бод");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 0;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel24.add(jLabel7, gridBagConstraints);
+
+        baudRateComboBox.setFont(fontScheme.getGuiFont());
+        baudRateComboBox.setModel(new javax.swing.DefaultComboBoxModel(new String[] { "115200", "230400", "460800", "921600" }));
+        baudRateComboBox.setToolTipText("Скорость порта, должна совпадать со скоростью устройства");
+        baudRateComboBox.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                baudRateComboBoxActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 0;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel24.add(baudRateComboBox, gridBagConstraints);
+
+        linkTestButton.setFont(fontScheme.getGuiFont());
+        linkTestButton.setText("Проверить связь");
+        linkTestButton.setToolTipText("Проверить все скорости и выбрать самую быструю стабильную");
+        linkTestButton.addActionListener(new java.awt.event.ActionListener() {
+            public void actionPerformed(java.awt.event.ActionEvent evt) {
+                linkTestButtonActionPerformed(evt);
+            }
+        });
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 1;
+        gridBagConstraints.gridwidth = 2;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel24.add(linkTestButton, gridBagConstraints);
+
+        linkTestLabel.setFont(fontScheme.getGuiFont());
+        linkTestLabel.setText(" ");
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 0;
+        gridBagConstraints.gridy = 2;
+        gridBagConstraints.gridwidth = 2;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        gridBagConstraints.weightx = 1.0;
+        gridBagConstraints.insets = new java.awt.Insets(5, 5, 5, 5);
+        jPanel24.add(linkTestLabel, gridBagConstraints);
+
+        gridBagConstraints = new java.awt.GridBagConstraints();
+        gridBagConstraints.gridx = 1;
+        gridBagConstraints.gridy = 2;
+        gridBagConstraints.fill = java.awt.GridBagConstraints.BOTH;
+        setupPanel.add(jPanel24, gridBagConstraints);
+
         tabbedPane.addTab("Настройка", setupPanel);
 
         gridBagConstraints = new java.awt.GridBagConstraints();
@@ -2048,6 +2419,37 @@ public class MainFrame extends javax.swing.JFrame {
      */
     private volatile boolean makeStep;
 
+    /**
+     * Передать контроллеру режим усреднения и запомнить его в настройках
+     */
+    private void updateAveraging() {
+        int frames = (Integer) averageSpinner.getValue();
+        AppProperties.setBoolean(AVERAGING, averageCheckBox.isSelected());
+        AppProperties.setInteger(AVERAGE_FRAMES, frames);
+        deviceController.setAveraging(averageCheckBox.isSelected() ? frames : 1);
+    }
+
+    /**
+     * Передать контроллеру режим огибающей и запомнить его в настройках
+     */
+    private void updateEnvelope() {
+        int decay = (Integer) envelopeDecaySpinner.getValue();
+        AppProperties.setBoolean(ENVELOPE, envelopeCheckBox.isSelected());
+        AppProperties.setInteger(ENVELOPE_DECAY, decay);
+        deviceController.setEnvelope(envelopeCheckBox.isSelected(), decay,
+                AppProperties.getInteger(ENVELOPE_RESET, 0));
+    }
+
+    /**
+     * Передать рисовальщику режим послесвечения и запомнить его в настройках
+     */
+    private void updatePersistence() {
+        int decay = (Integer) persistenceDecaySpinner.getValue();
+        AppProperties.setBoolean(PERSISTENCE, persistenceCheckBox.isSelected());
+        AppProperties.setInteger(PERSISTENCE_DECAY, decay);
+        scopeRenderer.setPersistence(persistenceCheckBox.isSelected(), decay);
+    }
+
     private void continuousCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_continuousCheckBoxActionPerformed
         continuousMode = continuousCheckBox.isSelected();
         enableStepButtons(!continuousMode);
@@ -2069,17 +2471,16 @@ public class MainFrame extends javax.swing.JFrame {
     }//GEN-LAST:event_autoDcCheckBoxActionPerformed
 
     private void imageButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_imageButtonActionPerformed
-        if (currentResult != null) {
-            if (tabbedPane.getSelectedComponent() == scopeParentPanel) {
-                if (Utils.saveImage(currentResult.getScopeImage())) {
-                    Message.show(this, "Сохранение", "Изображение осциллограммы сохранено");
-                }
-            } else if (tabbedPane.getSelectedComponent() == harmParentPanel) {
-                if (Utils.saveImage(currentResult.getHarmImage())) {
-                    Message.show(this, "Сохранение", "Изображение спектра гармоник сохранено");
-                }
+        if (tabbedPane.getSelectedComponent() == scopeParentPanel) {
+            BufferedImage image = copyCurrentImage(true);
+            if (image != null && Utils.saveImage(image)) {
+                Message.show(this, "Сохранение", "Изображение осциллограммы сохранено");
+            }
+        } else if (tabbedPane.getSelectedComponent() == harmParentPanel) {
+            BufferedImage image = copyCurrentImage(false);
+            if (image != null && Utils.saveImage(image)) {
+                Message.show(this, "Сохранение", "Изображение спектра гармоник сохранено");
             }
-
         }
     }//GEN-LAST:event_imageButtonActionPerformed
 
@@ -2088,14 +2489,18 @@ public class MainFrame extends javax.swing.JFrame {
         if (res == 1) {
             autoFreqCheckBox.setSelected(false);
             deviceController.setAutoFreq(false);
-            if (currentResult != null) {
-                currentResult.setAutoFreq(false);
+            Result r = takeCurrentResult();
+            if (r != null) {
+                r.setAutoFreq(false);
+                deviceController.releaseResult(r);
             }
         } else if (res == 2) {
             autoMeasureCheckBox.setSelected(false);
             deviceController.setAutoMeasure(false);
-            if (currentResult != null) {
-                currentResult.setAutoMeasure(false);
+            Result r = takeCurrentResult();
+            if (r != null) {
+                r.setAutoMeasure(false);
+                deviceController.releaseResult(r);
             }
         }
         if (!continuousMode) {
@@ -2106,9 +2511,11 @@ public class MainFrame extends javax.swing.JFrame {
     private void autoFreqCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_autoFreqCheckBoxActionPerformed
         deviceController.setAutoFreq(autoFreqCheckBox.isSelected());
         AppProperties.setBoolean(AUTO_FREQ, autoFreqCheckBox.isSelected());
-        if (currentResult != null) {
-            currentResult.setAutoFreq(autoFreqCheckBox.isSelected());
-            currentResult.remeasure();
+        Result r = takeCurrentResult();
+        if (r != null) {
+            r.setAutoFreq(autoFreqCheckBox.isSelected());
+            r.remeasure();
+            deviceController.releaseResult(r);
         }
         if (!continuousMode) {
             redrawAndMakePicture();
@@ -2166,9 +2573,11 @@ public class MainFrame extends javax.swing.JFrame {
     private void autoMeasureCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_autoMeasureCheckBoxActionPerformed
         deviceController.setAutoMeasure(autoMeasureCheckBox.isSelected());
         AppProperties.setBoolean(AUTO_MEASURE, autoMeasureCheckBox.isSelected());
-        if (currentResult != null) {
-            currentResult.setAutoMeasure(autoMeasureCheckBox.isSelected());
-            currentResult.remeasure();
+        Result r = takeCurrentResult();
+        if (r != null) {
+            r.setAutoMeasure(autoMeasureCheckBox.isSelected());
+            r.remeasure();
+            deviceController.releaseResult(r);
         }
         if (!continuousMode) {
             redrawAndMakePicture();
@@ -2201,6 +2610,13 @@ public class MainFrame extends javax.swing.JFrame {
         AppProperties.setHarmonicsInDb(harmDbCheckBox.isSelected());
     }//GEN-LAST:event_harmDbCheckBoxActionPerformed
 
+    private void spectrumWindowComboBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_spectrumWindowComboBoxActionPerformed
+        SpectrumWindow window = SpectrumWindow.byTitle((String) spectrumWindowComboBox.getSelectedItem());
+        if (window != null) {
+            AppProperties.setSpectrumWindow(window);
+        }
+    }//GEN-LAST:event_spectrumWindowComboBoxActionPerformed
+
     private void imageFormatComboBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_imageFormatComboBoxActionPerformed
         AppProperties.setString(IMAGE_FORMAT, (String) imageFormatComboBox.getSelectedItem());
     }//GEN-LAST:event_imageFormatComboBoxActionPerformed
@@ -2214,35 +2630,162 @@ public class MainFrame extends javax.swing.JFrame {
     }//GEN-LAST:event_portsComboBoxActionPerformed
 
     private void txtButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_txtButtonActionPerformed
-        if (currentResult != null) {
-            if (tabbedPane.getSelectedComponent() == scopeParentPanel) {
-                if (Utils.saveScopeText(currentResult)) {
-                    Message.show(this, "Сохранение", "Текст с выборками осциллограммы сохранен");
-                }
-            } else if (tabbedPane.getSelectedComponent() == harmParentPanel) {
-                if (Utils.saveHarmText(currentResult)) {
-                    Message.show(this, "Сохранение", "Текст со значениями гармоник сохранен");
+        Result r = takeCurrentResult();
+        if (r != null) {
+            try {
+                if (tabbedPane.getSelectedComponent() == scopeParentPanel) {
+                    if (Utils.saveScopeText(r)) {
+                        Message.show(this, "Сохранение", "Текст с выборками осциллограммы сохранен");
+                    }
+                } else if (tabbedPane.getSelectedComponent() == harmParentPanel) {
+                    if (Utils.saveHarmText(r)) {
+                        Message.show(this, "Сохранение", "Текст со значениями гармоник сохранен");
+                    }
                 }
+            } finally {
+                deviceController.releaseResult(r);
             }
         }
     }//GEN-LAST:event_txtButtonActionPerformed
 
     private void htmlButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_htmlButtonActionPerformed
-        if (currentResult != null) {
-            if (tabbedPane.getSelectedComponent() == scopeParentPanel) {
-                if (Utils.saveScopeWebPage(currentResult)) {
-                    Message.show(this, "Сохранение", "Файл с выборками осциллограммы сохранен");
-                }
-            } else if (tabbedPane.getSelectedComponent() == harmParentPanel) {
-                if (Utils.saveHarmWebPage(currentResult)) {
-                    Message.show(this, "Сохранение", "Файл со значениями гармоник сохранен");
+        Result r = takeCurrentResult();
+        if (r != null) {
+            try {
+                if (tabbedPane.getSelectedComponent() == scopeParentPanel) {
+                    if (Utils.saveScopeWebPage(r)) {
+                        Message.show(this, "Сохранение", "Файл с выборками осциллограммы сохранен");
+                    }
+                } else if (tabbedPane.getSelectedComponent() == harmParentPanel) {
+                    if (Utils.saveHarmWebPage(r)) {
+                        Message.show(this, "Сохранение", "Файл со значениями гармоник сохранен");
+                    }
                 }
+            } finally {
+                deviceController.releaseResult(r);
             }
         }
     }//GEN-LAST:event_htmlButtonActionPerformed
 
+    private void baudRateComboBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_baudRateComboBoxActionPerformed
+        int baudRate = Integer.parseInt((String) baudRateComboBox.getSelectedItem());
+        AppProperties.setLinkParameters(AppProperties.getLinkParameters().withBaudRate(baudRate));
+    }//GEN-LAST:event_baudRateComboBoxActionPerformed
+
+    private void linkTestButtonActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_linkTestButtonActionPerformed
+        if (deviceController.isOpen()) {
+            Message.show(this, "Проверка связи", "Остановите приём данных перед проверкой связи");
+            return;
+        }
+        final String portName = (String) portsComboBox.getSelectedItem();
+        if (portName == null) {
+            return;
+        }
+        linkTestButton.setEnabled(false);
+        startButton.setEnabled(false);
+        linkTestLabel.setText("Проверка...");
+        Thread th = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                String text;
+                LinkSelfTest.Measurement best = null;
+                try {
+                    List<LinkSelfTest.Measurement> results = LinkSelfTest.run(portName, AppProperties.getLinkParameters(),
+                            Const.BAUD_RATES, Const.LINK_TEST_DURATION);
+                    best = LinkSelfTest.pickFastest(results);
+                    StringBuilder sb = new StringBuilder("<html>");
+                    for (LinkSelfTest.Measurement m : results) {
+                        sb.append(m).append("<br>");
+                    }
+                    text = sb.append("</html>").toString();
+                } catch (InterruptedException ex) {
+                    text = "Проверка прервана";
+                }
+                final String resultText = text;
+                final LinkSelfTest.Measurement bestResult = best;
+                EventQueue.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        linkTestLabel.setText(resultText);
+                        if (bestResult != null) {
+                            baudRateComboBox.setSelectedItem(String.valueOf(bestResult.link.getBaudRate()));
+                        }
+                        linkTestButton.setEnabled(true);
+                        startButton.setEnabled(true);
+                    }
+                });
+            }
+        }, "LinkSelfTest");
+        th.setDaemon(true);
+        th.start();
+    }//GEN-LAST:event_linkTestButtonActionPerformed
+
+    private void averageCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_averageCheckBoxActionPerformed
+        updateAveraging();
+    }//GEN-LAST:event_averageCheckBoxActionPerformed
+
+    private void averageSpinnerStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_averageSpinnerStateChanged
+        updateAveraging();
+    }//GEN-LAST:event_averageSpinnerStateChanged
+
+    private void envelopeCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_envelopeCheckBoxActionPerformed
+        updateEnvelope();
+    }//GEN-LAST:event_envelopeCheckBoxActionPerformed
+
+    private void envelopeDecaySpinnerStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_envelopeDecaySpinnerStateChanged
+        updateEnvelope();
+    }//GEN-LAST:event_envelopeDecaySpinnerStateChanged
+
+    private void persistenceCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_persistenceCheckBoxActionPerformed
+        updatePersistence();
+    }//GEN-LAST:event_persistenceCheckBoxActionPerformed
+
+    private void persistenceDecaySpinnerStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_persistenceDecaySpinnerStateChanged
+        updatePersistence();
+    }//GEN-LAST:event_persistenceDecaySpinnerStateChanged
+
+    private void interpolationCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_interpolationCheckBoxActionPerformed
+        AppProperties.setBoolean(INTERPOLATION, interpolationCheckBox.isSelected());
+        scopeRenderer.setInterpolation(interpolationCheckBox.isSelected());
+    }//GEN-LAST:event_interpolationCheckBoxActionPerformed
+
+    private void fpsSpinnerStateChanged(javax.swing.event.ChangeEvent evt) {//GEN-FIRST:event_fpsSpinnerStateChanged
+        renderFps = (Integer) fpsSpinner.getValue();
+        AppProperties.setInteger(RENDER_FPS, renderFps);
+    }//GEN-LAST:event_fpsSpinnerStateChanged
+
+    private void directRayCheckBoxActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_directRayCheckBoxActionPerformed
+        AppProperties.setBoolean(DIRECT_RAY, directRayCheckBox.isSelected());
+        scopeRenderer.setDirectRay(directRayCheckBox.isSelected());
+    }//GEN-LAST:event_directRayCheckBoxActionPerformed
+
+    /**
+     * Запуск приложения. Если в командной строке заданы имена портов, то для
+     * каждого порта открывается своё окно и сразу начинается работа.
+     *
+     * @param args имена портов
+     */
     public static void main(String args[]) {
-        final MainFrame mf = new MainFrame();
+        final MainFrame[] frames = new MainFrame[Math.max(1, args.length)];
+        for (int i = 0; i < frames.length; i++) {
+            frames[i] = new MainFrame(i < args.length ? args[i] : null);
+        }
+        if (frames.length > 1) {
+            // приложение завершается с закрытием последнего окна
+            final AtomicInteger openFrames = new AtomicInteger(frames.length);
+            for (MainFrame frame : frames) {
+                frame.setDefaultCloseOperation(javax.swing.WindowConstants.DISPOSE_ON_CLOSE);
+                frame.addWindowListener(new WindowAdapter() {
+                    @Override
+                    public void windowClosed(WindowEvent e) {
+                        if (openFrames.decrementAndGet() == 0) {
+                            System.exit(0);
+                        }
+                    }
+                });
+            }
+        }
+        final MainFrame mf = frames[0];
         LOGGER.addHandler(new Handler() {
 
             @Override
@@ -2263,7 +2806,9 @@ public class MainFrame extends javax.swing.JFrame {
         EventQueue.invokeLater(new Runnable() {
             @Override
             public void run() {
-                mf.setVisible(true);
+                for (MainFrame frame : frames) {
+                    frame.setVisible(true);
+                }
             }
         });
     }
@@ -2273,6 +2818,9 @@ public class MainFrame extends javax.swing.JFrame {
     private javax.swing.JCheckBox autoFreqCheckBox;
     private javax.swing.JCheckBox autoMeasureCheckBox;
     private javax.swing.JCheckBox autoRangeCheckBox;
+    private javax.swing.JCheckBox averageCheckBox;
+    private javax.swing.JSpinner averageSpinner;
+    private javax.swing.JComboBox baudRateComboBox;
     private javax.swing.JCheckBox borderFontBoldCheckBox;
     private javax.swing.JComboBox borderFontComboBox;
     private javax.swing.JCheckBox borderFontItalicCheckBox;
@@ -2296,9 +2844,14 @@ public class MainFrame extends javax.swing.JFrame {
     private javax.swing.JPanel demoPanel;
     private javax.swing.JPanel demoPanel1;
     private javax.swing.JPanel demoPanel2;
+    private javax.swing.JCheckBox directRayCheckBox;
+    private javax.swing.JCheckBox envelopeCheckBox;
+    private javax.swing.JSpinner envelopeDecaySpinner;
     private javax.swing.Box.Filler filler1;
     private javax.swing.Box.Filler filler2;
     private javax.swing.Box.Filler filler3;
+    private javax.swing.JLabel fpsLabel;
+    private javax.swing.JSpinner fpsSpinner;
     private javax.swing.JLabel freqLabel;
     private javax.swing.JCheckBox guiFontBoldCheckBox;
     private javax.swing.JComboBox guiFontComboBox;
@@ -2316,10 +2869,13 @@ public class MainFrame extends javax.swing.JFrame {
     private javax.swing.JRadioButton inputAcRadioButton;
     private javax.swing.JRadioButton inputDcRadioButton;
     private javax.swing.JRadioButton inputGndRadioButton;
+    private javax.swing.JCheckBox interpolationCheckBox;
     private javax.swing.JLabel jLabel1;
     private javax.swing.JLabel jLabel2;
     private javax.swing.JLabel jLabel5;
     private javax.swing.JLabel jLabel6;
+    private javax.swing.JLabel jLabel7;
+    private javax.swing.JLabel jLabel8;
     private javax.swing.JPanel jPanel1;
     private javax.swing.JPanel jPanel10;
     private javax.swing.JPanel jPanel11;
@@ -2336,6 +2892,7 @@ public class MainFrame extends javax.swing.JFrame {
     private javax.swing.JPanel jPanel21;
     private javax.swing.JPanel jPanel22;
     private javax.swing.JPanel jPanel23;
+    private javax.swing.JPanel jPanel24;
     private javax.swing.JPanel jPanel3;
     private javax.swing.JPanel jPanel4;
     private javax.swing.JPanel jPanel5;
@@ -2345,7 +2902,11 @@ public class MainFrame extends javax.swing.JFrame {
     private javax.swing.JPanel jPanel9;
     private javax.swing.JLabel kHarmLabel;
     private javax.swing.JButton leftOffsetButton;
+    private javax.swing.JButton linkTestButton;
+    private javax.swing.JLabel linkTestLabel;
     private javax.swing.JComboBox periodComboBox;
+    private javax.swing.JCheckBox persistenceCheckBox;
+    private javax.swing.JSpinner persistenceDecaySpinner;
     private javax.swing.JComboBox portsComboBox;
     private javax.swing.JComboBox rangeComboBox;
     private javax.swing.JButton rightOffsetButton;
@@ -2357,6 +2918,7 @@ public class MainFrame extends javax.swing.JFrame {
     private javax.swing.JButton searchPortsButton;
     private javax.swing.JPanel setupDemoScopePanel;
     private javax.swing.JPanel setupPanel;
+    private javax.swing.JComboBox spectrumWindowComboBox;
     private javax.swing.JButton startButton;
     private javax.swing.JButton stepButton;
     private javax.swing.JButton stopButton;
@@ -2389,6 +2951,20 @@ public class MainFrame extends javax.swing.JFrame {
          */
         private BufferedImage image;
 
+        /**
+         * Назначение изображений панели в пуле изображений
+         */
+        private final ImagePool.Purpose purpose;
+
+        /**
+         * Создаёт панель
+         *
+         * @param purpose назначение изображений панели в пуле изображений
+         */
+        RenderPanel(ImagePool.Purpose purpose) {
+            this.purpose = purpose;
+        }
+
         /**
          * Скопировать на панель изображение
          *
@@ -2400,7 +2976,7 @@ public class MainFrame extends javax.swing.JFrame {
                 // есть новое изображение
                 if (image != null) {
                     // старое можно вернуть для повторного использования
-                    scopeRenderer.returnUsedImage(image);
+                    scopeRenderer.returnUsedImage(image, purpose);
                 }
                 image = bi;
                 // затребовать перерисовку окна
@@ -2456,6 +3032,21 @@ public class MainFrame extends javax.swing.JFrame {
                 setInputMode(InputMode.GND);
                 autoDcCheckBox.setEnabled(true);
         }
+        averageSpinner.setValue(AppProperties.getInteger(AVERAGE_FRAMES, Const.AVERAGE_FRAMES));
+        averageCheckBox.setSelected(AppProperties.getBoolean(AVERAGING, false));
+        updateAveraging();
+        envelopeDecaySpinner.setValue(AppProperties.getInteger(ENVELOPE_DECAY, 0));
+        envelopeCheckBox.setSelected(AppProperties.getBoolean(ENVELOPE, false));
+        updateEnvelope();
+        persistenceDecaySpinner.setValue(AppProperties.getInteger(PERSISTENCE_DECAY, 10));
+        persistenceCheckBox.setSelected(AppProperties.getBoolean(PERSISTENCE, false));
+        updatePersistence();
+        interpolationCheckBox.setSelected(AppProperties.getBoolean(INTERPOLATION, true));
+        scopeRenderer.setInterpolation(interpolationCheckBox.isSelected());
+        fpsSpinner.setValue(AppProperties.getInteger(RENDER_FPS, Const.RENDER_FPS));
+        renderFps = (Integer) fpsSpinner.getValue();
+        directRayCheckBox.setSelected(AppProperties.getBoolean(DIRECT_RAY, false));
+        scopeRenderer.setDirectRay(directRayCheckBox.isSelected());
         autoDcCheckBox.setSelected(AppProperties.getBoolean(AUTO_DC, false));
         autoDcMode = autoDcCheckBox.isSelected();
         dcOffsetSlider.setValue(AppProperties.getInteger(DC_OFFSET, 125));
@@ -2489,6 +3080,7 @@ public class MainFrame extends javax.swing.JFrame {
         autoMeasureCheckBox.setSelected(AppProperties.getBoolean(AUTO_MEASURE, false));
         deviceController.setAutoMeasure(autoMeasureCheckBox.isSelected());
         harmDbCheckBox.setSelected(AppProperties.isHarmonicsInDb());
+        spectrumWindowComboBox.setSelectedItem(AppProperties.getSpectrumWindow().getTitle());
         imageFormatComboBox.setSelectedItem(AppProperties.getString(IMAGE_FORMAT, "PNG"));
         harmCountSpinner.setValue(AppProperties.getHarmonicsCount());
         harmRenderSpinner.setValue(AppProperties.getHarmonicsRender());
@@ -2529,6 +3121,7 @@ public class MainFrame extends javax.swing.JFrame {
         colorSchemeComboBox.setSelectedItem(colorScheme.getName());
         setSetupListeners();
         textCharsetComboBox.setSelectedItem(AppProperties.getString(TEXT_CHARSET, "UTF-16"));
+        baudRateComboBox.setSelectedItem(String.valueOf(AppProperties.getLinkParameters().getBaudRate()));
     }
 
     /**
@@ -2744,22 +3337,18 @@ public class MainFrame extends javax.swing.JFrame {
             // нарисовать луч
             g.setColor(setupColorScheme.getRayColor());
             g.setStroke(ScopeRenderer.RAY_STROKE);
-            ScopeRenderer.Point[] points = new ScopeRenderer.Point[width];
+            int[] xs = new int[width];
+            int[] ys = new int[width];
             // сгенерировать синусоиду
             double ampl = height / 4;
             int offset = y_pos + height / 2;
             double f = 4 * Math.PI / width;
-            for (int i = 0; i < points.length; i++) {
-                points[i] = new ScopeRenderer.Point(x_pos + i, offset + (int) Math.round(ampl * Math.sin(i * f)));
+            for (int i = 0; i < width; i++) {
+                xs[i] = x_pos + i;
+                ys[i] = offset + (int) Math.round(ampl * Math.sin(i * f));
             }
             // и нарисовать её
-            for (int i = 0; i < points.length - 1; i++) {
-                int x1 = points[i].x;
-                int y1 = points[i].y;
-                int x2 = points[i + 1].x;
-                int y2 = points[i + 1].y;
-                g.drawLine(x1, y1, x2, y2);
-            }
+            g.drawPolyline(xs, ys, width);
         }
     };
 
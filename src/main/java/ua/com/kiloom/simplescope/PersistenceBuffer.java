@@ -0,0 +1,222 @@
+package ua.com.kiloom.simplescope;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * Послесвечение луча как у аналогового осциллографа. Для каждого пикселя
+ * области графика хранится счётчик попаданий луча (с фиксированной точкой),
+ * каждый кадр счётчики затухают по экспоненте (или не затухают вовсе), а
+ * отрезки нового кадра добавляют попадания. Яркость пикселя изображения
+ * берётся из палитры цветовой схемы по значению счётчика, поэтому редкие
+ * события видны тусклыми, а частые - яркими.
+ *
+ * Счётчики и пиксели изображения обрабатываются напрямую в массивах, без
+ * Graphics2D. Экземпляр не потокобезопасен.
+ *
+ * @author Vasily Monakhov
+ */
+class PersistenceBuffer {
+
+    /**
+     * Одно попадание луча в пиксель
+     */
+    static final int HIT = 256;
+
+    /**
+     * Насыщение счётчика, соответствует последнему цвету палитры
+     */
+    static final int MAX_HITS = 64 * HIT;
+
+    /**
+     * Сдвиг для перевода счётчика в индекс палитры из
+     * {@link ColorScheme#PALETTE_SIZE} цветов
+     */
+    private static final int PALETTE_SHIFT = 6;
+
+    /**
+     * Ширина области
+     */
+    private int width;
+
+    /**
+     * Высота области
+     */
+    private int height;
+
+    /**
+     * Счётчики попаданий по пикселям
+     */
+    private int[] hits = new int[0];
+
+    /**
+     * Изображение послесвечения
+     */
+    private BufferedImage image;
+
+    /**
+     * Пиксели изображения
+     */
+    private int[] pixels;
+
+    /**
+     * Доля счётчика, остающаяся после кадра, в 1/256, 256 - без затухания
+     */
+    private int keep = HIT;
+
+    /**
+     * Задать затухание
+     *
+     * @param decay на сколько процентов затухает послесвечение за кадр, 0 -
+     * бесконечное послесвечение
+     */
+    void setDecay(int decay) {
+        decay = Math.max(0, Math.min(100, decay));
+        keep = HIT * (100 - decay) / 100;
+    }
+
+    /**
+     * Задать размер области. При изменении размера послесвечение
+     * сбрасывается.
+     *
+     * @param width ширина, пикселей
+     * @param height высота, пикселей
+     */
+    void setSize(int width, int height) {
+        if (width != this.width || height != this.height || image == null) {
+            this.width = width;
+            this.height = height;
+            hits = new int[width * height];
+            // ARGB: нулевой цвет палитры прозрачный, под ним видна сетка
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+    }
+
+    /**
+     * Сбросить послесвечение
+     */
+    void clear() {
+        Arrays.fill(hits, 0);
+    }
+
+    /**
+     * Возвращает счётчик попаданий пикселя
+     *
+     * @param x абсцисса в области
+     * @param y ордината в области
+     * @return счётчик, {@link #HIT} на одно попадание
+     */
+    int getHits(int x, int y) {
+        return hits[y * width + x];
+    }
+
+    /**
+     * Применить затухание к накопленному
+     */
+    void decay() {
+        int k = keep;
+        if (k == HIT) {
+            return;
+        }
+        int[] h = hits;
+        for (int i = 0; i < h.length; i++) {
+            h[i] = (h[i] * k) >> 8;
+        }
+    }
+
+    /**
+     * Добавить попадания луча по ломаной. Общая точка соседних отрезков
+     * учитывается один раз.
+     *
+     * @param xs абсциссы вершин в области
+     * @param ys ординаты вершин в области
+     * @param count количество вершин
+     */
+    void addPolyline(int[] xs, int[] ys, int count) {
+        addPolyline(xs, ys, count, 0, 0);
+    }
+
+    /**
+     * Добавить попадания луча по ломаной, заданной в координатах
+     * изображения. Общая точка соседних отрезков учитывается один раз.
+     *
+     * @param xs абсциссы вершин
+     * @param ys ординаты вершин
+     * @param count количество вершин
+     * @param left абсцисса левого края области
+     * @param top ордината верхнего края области
+     */
+    void addPolyline(int[] xs, int[] ys, int count, int left, int top) {
+        if (count == 0) {
+            return;
+        }
+        plot(xs[0] - left, ys[0] - top);
+        for (int i = 1; i < count; i++) {
+            addSegment(xs[i - 1] - left, ys[i - 1] - top, xs[i] - left, ys[i] - top);
+        }
+    }
+
+    /**
+     * Добавить попадания по отрезку алгоритмом Брезенхэма, без начальной
+     * точки
+     *
+     * @param x0 абсцисса начала
+     * @param y0 ордината начала
+     * @param x1 абсцисса конца
+     * @param y1 ордината конца
+     */
+    private void addSegment(int x0, int y0, int x1, int y1) {
+        int dx = Math.abs(x1 - x0);
+        int dy = -Math.abs(y1 - y0);
+        int sx = x0 < x1 ? 1 : -1;
+        int sy = y0 < y1 ? 1 : -1;
+        int err = dx + dy;
+        while (x0 != x1 || y0 != y1) {
+            int e2 = 2 * err;
+            if (e2 >= dy) {
+                err += dy;
+                x0 += sx;
+            }
+            if (e2 <= dx) {
+                err += dx;
+                y0 += sy;
+            }
+            plot(x0, y0);
+        }
+    }
+
+    /**
+     * Добавить попадание в пиксель
+     *
+     * @param x абсцисса в области
+     * @param y ордината в области
+     */
+    private void plot(int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return;
+        }
+        int i = y * width + x;
+        int h = hits[i] + HIT;
+        hits[i] = h > MAX_HITS ? MAX_HITS : h;
+    }
+
+    /**
+     * Перевести счётчики в пиксели изображения по палитре
+     *
+     * @param palette палитра из {@link ColorScheme#PALETTE_SIZE} цветов ARGB
+     * @return изображение послесвечения
+     */
+    BufferedImage render(int[] palette) {
+        int[] h = hits;
+        int[] p = pixels;
+        int last = palette.length - 1;
+        for (int i = 0; i < h.length; i++) {
+            int index = h[i] >> PALETTE_SHIFT;
+            p[i] = palette[index > last ? last : index];
+        }
+        return image;
+    }
+
+}
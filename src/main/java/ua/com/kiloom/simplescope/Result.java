@@ -4,7 +4,11 @@ import java.awt.image.BufferedImage;
 import java.util.Arrays;
 
 /**
- * Результат измерений
+ * Результат измерений. При поступлении данных выполняется только проверка
+ * отсчётов, остальной анализ разбит на этапы, которые выполняются при первом
+ * обращении к их результатам и запоминаются: напряжения и статистика
+ * (минимум, максимум, СКЗ, перегрузка), автоматическая установка линеек,
+ * анализ гармоник. Кадр, который никто не отображает, стоит только проверки.
  *
  * @author Vasily Monakhov
  */
@@ -18,12 +22,126 @@ class Result {
     /**
      * Индекс предела измерения напряжения на момент фиксации данных
      */
-    private final int currentVoltageIndex;
+    private int currentVoltageIndex;
 
     /**
      * Индекс периода развёртки на момент фиксации данных
      */
-    private final int currentTimeIndex;
+    private int currentTimeIndex;
+
+    /**
+     * Идентификатор устройства, от которого получены данные
+     */
+    private String deviceId;
+
+    /**
+     * Количество кадров, по которым усреднены данные, 0 - без усреднения
+     */
+    private int averagedFrames;
+
+    /**
+     * Возвращает количество кадров, по которым усреднены данные
+     *
+     * @return количество кадров, 0 - без усреднения
+     */
+    int getAveragedFrames() {
+        return averagedFrames;
+    }
+
+    /**
+     * Задаёт количество кадров, по которым усреднены данные
+     *
+     * @param averagedFrames количество кадров
+     */
+    void setAveragedFrames(int averagedFrames) {
+        this.averagedFrames = averagedFrames;
+    }
+
+    /**
+     * Минимальные значения АЦП огибающей
+     */
+    private final int[] envelopeMin = new int[Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Максимальные значения АЦП огибающей
+     */
+    private final int[] envelopeMax = new int[Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Содержит ли результат огибающую
+     */
+    private boolean envelope;
+
+    /**
+     * Скопировать в результат огибающую
+     *
+     * @param min минимальные значения АЦП по отсчётам
+     * @param max максимальные значения АЦП по отсчётам
+     */
+    void setEnvelope(int[] min, int[] max) {
+        System.arraycopy(min, 0, envelopeMin, 0, Const.ADC_DATA_BLOCK_SIZE);
+        System.arraycopy(max, 0, envelopeMax, 0, Const.ADC_DATA_BLOCK_SIZE);
+        envelope = true;
+    }
+
+    /**
+     * Содержит ли результат огибающую
+     *
+     * @return true если огибающая задана
+     */
+    boolean hasEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * Возвращает минимальные значения АЦП огибающей
+     *
+     * @return минимальные значения по отсчётам
+     */
+    int[] getEnvelopeMin() {
+        return envelopeMin;
+    }
+
+    /**
+     * Возвращает максимальные значения АЦП огибающей
+     *
+     * @return максимальные значения по отсчётам
+     */
+    int[] getEnvelopeMax() {
+        return envelopeMax;
+    }
+
+    /**
+     * Калибровка устройства, от которого получены данные
+     */
+    private Calibration calibration = Calibration.IDENTITY;
+
+    /**
+     * Задаёт калибровку устройства. Должна быть задана до обработки данных.
+     *
+     * @param calibration калибровка устройства
+     */
+    void setCalibration(Calibration calibration) {
+        this.calibration = calibration;
+    }
+
+    /**
+     * Возвращает идентификатор устройства, от которого получены данные
+     *
+     * @return идентификатор устройства
+     */
+    String getDeviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Задаёт идентификатор устройства, от которого получены данные
+     *
+     * @param deviceId идентификатор устройства
+     */
+    void setDeviceId(String deviceId) {
+        this.deviceId = deviceId;
+    }
 
     /**
      * Создаёт результаты
@@ -36,6 +154,89 @@ class Result {
         this.currentVoltageIndex = currentVoltageIndex;
     }
 
+    /**
+     * Подготавливает результат к повторному использованию с новыми данными.
+     * Массивы данных остаются прежними и перезаписываются при обработке.
+     *
+     * @param currentVoltageIndex текущий индекс предела измерения напряжения
+     * @param currentTimeIndex текущий индекс времени развёртки
+     */
+    void reset(int currentVoltageIndex, int currentTimeIndex) {
+        this.currentTimeIndex = currentTimeIndex;
+        this.currentVoltageIndex = currentVoltageIndex;
+        deviceId = null;
+        calibration = Calibration.IDENTITY;
+        averagedFrames = 0;
+        envelope = false;
+        scopeImage = null;
+        harmImage = null;
+        deltaT = 1;
+        deltaV = 0;
+        leftRulerPos = 0;
+        rightRulerPos = 0;
+        upperRulerPos = 0;
+        lowerRulerPos = 0;
+        kHarm = 0;
+        voltagesReady = false;
+        measured = false;
+        harmonicsFrom = -1;
+        if (harmonics.length != AppProperties.getHarmonicsCount()) {
+            // количество гармоник изменено в настройках
+            harmonics = new double[AppProperties.getHarmonicsCount()];
+            harmonicPhases = new double[harmonics.length];
+        } else {
+            Arrays.fill(harmonics, 0);
+            Arrays.fill(harmonicPhases, 0);
+        }
+    }
+
+    /**
+     * Находится ли результат в пуле
+     */
+    private boolean pooled;
+
+    /**
+     * Находится ли результат в пуле
+     *
+     * @return true если результат возвращён в пул
+     */
+    boolean isPooled() {
+        return pooled;
+    }
+
+    /**
+     * Отмечает, находится ли результат в пуле
+     *
+     * @param pooled true если результат возвращён в пул
+     */
+    void setPooled(boolean pooled) {
+        this.pooled = pooled;
+    }
+
+    /**
+     * Количество владельцев результата, изменяется только пулом под его
+     * блокировкой
+     */
+    private int owners;
+
+    /**
+     * Возвращает количество владельцев результата
+     *
+     * @return количество владельцев
+     */
+    int getOwners() {
+        return owners;
+    }
+
+    /**
+     * Задаёт количество владельцев результата
+     *
+     * @param owners количество владельцев
+     */
+    void setOwners(int owners) {
+        this.owners = owners;
+    }
+
     /**
      * Максимальное нампряжение
      */
@@ -66,6 +267,7 @@ class Result {
     }
 
     double[] getVoltages() {
+        ensureVoltages();
         return voltages;
     }
 
@@ -75,6 +277,7 @@ class Result {
      * @return максимальное напряжение
      */
     double getVMax() {
+        ensureVoltages();
         return vMax;
     }
 
@@ -84,6 +287,7 @@ class Result {
      * @return минимальное напряжение
      */
     double getVMin() {
+        ensureVoltages();
         return vMin;
     }
 
@@ -93,6 +297,7 @@ class Result {
      * @return среднеквадратическое напряжение
      */
     double getVRms() {
+        ensureVoltages();
         return vRms;
     }
 
@@ -108,6 +313,8 @@ class Result {
      * @param rightTime отсчёт правой вериткальной линейки
      */
     void setDeltaT(int leftTime, int rightTime) {
+        // ручная установка линеек должна перекрыть автоматическую
+        ensureMeasured();
         if (leftTime < rightTime) {
             leftRulerPos = leftTime;
             rightRulerPos = rightTime;
@@ -124,6 +331,7 @@ class Result {
      * @return разница времени между вертикальными линейками, сек
      */
     double getDeltaT() {
+        ensureMeasured();
         return deltaT;
     }
 
@@ -139,6 +347,7 @@ class Result {
      * @param lowerValue значение АЦП, соответствующее нижней линейке
      */
     void setDeltaV(int upperValue, int lowerValue) {
+        ensureMeasured();
         if (upperValue > lowerValue) {
             lowerRulerPos = lowerValue;
             upperRulerPos = upperValue;
@@ -146,7 +355,7 @@ class Result {
             lowerRulerPos = upperValue;
             upperRulerPos = lowerValue;
         }
-        deltaV = ((upperRulerPos - lowerRulerPos) * Const.VOLTAGES[currentVoltageIndex]) / Const.ADC_MIDDLE;
+        deltaV = adcValueToVoltage(upperRulerPos) - adcValueToVoltage(lowerRulerPos);
     }
 
     /**
@@ -155,6 +364,7 @@ class Result {
      * @return разница напряжения между горизонтальными линейками, В
      */
     double getDeltaV() {
+        ensureMeasured();
         return deltaV;
     }
 
@@ -225,22 +435,25 @@ class Result {
      * @return true если данные корректные
      */
     boolean processADCData(byte[] newBlock, boolean autoFreq, boolean autoMeasure) {
-        this.autoFreq = autoFreq;
-        this.autoMeasure = autoMeasure;
-        int j = 0;
-        // вычисление напряжений
-        vMin = Double.POSITIVE_INFINITY;
-        vMax = Double.NEGATIVE_INFINITY;
-        double squareVoltage = 0;
-        // определить размер полученного блока
+        return processADCData(newBlock, newBlock.length, autoFreq, autoMeasure);
+    }
 
+    /**
+     * Обрабатывает сырые данные от АЦП ввиде начала массива байтов
+     *
+     * @param newBlock сырые данные от АЦП ввиде массива байтов
+     * @param length количество байтов данных в массиве
+     * @param autoFreq требуется автоматически определить частоту сигнала
+     * @param autoMeasure требуется автоматически обмерять сигнал
+     * @return true если данные корректные
+     */
+    boolean processADCData(byte[] newBlock, int length, boolean autoFreq, boolean autoMeasure) {
+        // определить размер полученного блока
         int steps = Const.BYTES_BLOCK_SIZE - 1;
-        boolean needAppend = false;
-        if (newBlock.length < Const.BYTES_BLOCK_SIZE) {
-            steps = newBlock.length - 1;
-            needAppend = true;
+        if (length < Const.BYTES_BLOCK_SIZE) {
+            steps = length - 1;
         }
-        overloadSignal = false;
+        int j = 0;
         for (int i = 0; i < steps;) {
             // преобразовать байты данныех в значение АЦП
             int value = newBlock[i++] << 8 | newBlock[i++] & 0x00FF;
@@ -249,12 +462,6 @@ class Result {
                 // очевидно, что там какой-то мусор и этот блок стоит забраковать
                 return false;
             }
-            // проверить перегрузку входа, если есть абсолютный 0 или максимально возможное значение,
-            // то скорее всего стоит изменить предел измерения вниз
-            if (value <= 0 || value >= Const.ADC_MAX) {
-                overloadSignal = true;
-            }
-
             // Отладка - меандр
             // value = ((j /100) % 2 == 0) ? Const.ADC_MIDDLE + 1000 : Const.ADC_MIDDLE - 1000;
             // положительный меандр
@@ -265,9 +472,130 @@ class Result {
             //         + 200 * Math.sin(i * Math.PI * 12 / Const.ADC_DATA_BLOCK_SIZE)
             //        + 100 * Math.sin(i * Math.PI * 16 / Const.ADC_DATA_BLOCK_SIZE));
             // запись сырых данных от АЦП для построения графика
-            adcData[j] = value;
+            adcData[j++] = value;
+        }
+        dataReceived(j, autoFreq, autoMeasure);
+        return true;
+    }
+
+    /**
+     * Обрабатывает отсчёты АЦП, уже собранные потоковым разборщиком
+     *
+     * @param values отсчёты АЦП, {@link Const#ADC_DATA_BLOCK_SIZE} значений
+     * @param autoFreq требуется автоматически определить частоту сигнала
+     * @param autoMeasure требуется автоматически обмерять сигнал
+     * @return true если данные корректные
+     */
+    boolean processADCData(int[] values, boolean autoFreq, boolean autoMeasure) {
+        for (int i = 0; i < Const.ADC_DATA_BLOCK_SIZE; i++) {
+            int value = values[i];
+            // проверить значение на допустимость
+            if (value < 0 || value >= Const.ADC_RANGE) {
+                return false;
+            }
+            adcData[i] = value;
+        }
+        dataReceived(Const.ADC_DATA_BLOCK_SIZE, autoFreq, autoMeasure);
+        return true;
+    }
+
+    /**
+     * Количество полученных отсчётов в начале adcData
+     */
+    private int receivedCount;
+
+    /**
+     * Вычислены ли напряжения и статистика
+     */
+    private boolean voltagesReady;
+
+    /**
+     * Выполнена ли автоматическая установка линеек
+     */
+    private boolean measured;
+
+    /**
+     * Запоминает параметры анализа новых данных и сбрасывает результаты
+     * предыдущих этапов. Короткий блок добивается последним значением.
+     *
+     * @param count количество полученных отсчётов
+     * @param autoFreq требуется автоматически определить частоту сигнала
+     * @param autoMeasure требуется автоматически обмерять сигнал
+     */
+    private synchronized void dataReceived(int count, boolean autoFreq, boolean autoMeasure) {
+        receivedCount = count;
+        this.autoFreq = autoFreq;
+        this.autoMeasure = autoMeasure;
+        // если размер блока меньше, то добить остаток последними значениями
+        for (int i = Math.max(count, 1); i < Const.ADC_DATA_BLOCK_SIZE; i++) {
+            adcData[i] = adcData[i - 1];
+        }
+        voltagesReady = false;
+        measured = false;
+        harmonicsFrom = -1;
+    }
+
+    /**
+     * Вычислены ли напряжения и статистика
+     *
+     * @return true если этап уже выполнен
+     */
+    synchronized boolean isVoltagesReady() {
+        return voltagesReady;
+    }
+
+    /**
+     * Выполнена ли автоматическая установка линеек
+     *
+     * @return true если этап уже выполнен
+     */
+    synchronized boolean isMeasured() {
+        return measured;
+    }
+
+    /**
+     * Вычисляет напряжения и статистику, если они ещё не вычислены
+     */
+    private synchronized void ensureVoltages() {
+        if (!voltagesReady) {
+            voltagesReady = true;
+            processValues();
+        }
+    }
+
+    /**
+     * Выполняет автоматическую установку линеек, если она ещё не выполнена
+     */
+    private synchronized void ensureMeasured() {
+        if (!measured) {
+            measured = true;
+            ensureVoltages();
+            if (processAutoFreq()) {
+                setDeltaT(leftRulerPos, rightRulerPos);
+            }
+            processAutoMeasure();
+        }
+    }
+
+    /**
+     * Вычисляет напряжения и статистику по отсчётам в начале adcData
+     */
+    private void processValues() {
+        // вычисление напряжений
+        vMin = Double.POSITIVE_INFINITY;
+        vMax = Double.NEGATIVE_INFINITY;
+        double squareVoltage = 0;
+        overloadSignal = false;
+        double[] table = calibration.getTable(currentVoltageIndex);
+        for (int j = 0; j < receivedCount; j++) {
+            int value = adcData[j];
+            // проверить перегрузку входа, если есть абсолютный 0 или максимально возможное значение,
+            // то скорее всего стоит изменить предел измерения вниз
+            if (value <= 0 || value >= Const.ADC_MAX) {
+                overloadSignal = true;
+            }
             // вычислим мгновенное значение напряжения
-            double voltage = adcValueToVoltage(value);
+            double voltage = table[value];
             // запишем в массив
             voltages[j] = voltage;
             // найдём минимум и максимум
@@ -279,10 +607,9 @@ class Result {
             }
             // подсчёт суммы квадратов всех значений
             squareVoltage = squareVoltage + voltage * voltage;
-            j++;
         }
         // и среднеквадратического напряжения
-        vRms = Math.sqrt(squareVoltage / j);
+        vRms = Math.sqrt(squareVoltage / receivedCount);
 
         // проверим, не слишком ли слаб сигнал
         if (currentVoltageIndex > 0) {
@@ -296,24 +623,18 @@ class Result {
         }
 
         // если размер блока меньше, то добить остаток последними значениями
-        if (needAppend) {
-            for (int i = steps / 2; i < Const.ADC_DATA_BLOCK_SIZE; i++) {
-                adcData[i] = adcData[i - 1];
-                voltages[i] = voltages[i - 1];
-            }
+        for (int i = Math.max(receivedCount, 1); i < Const.ADC_DATA_BLOCK_SIZE; i++) {
+            voltages[i] = voltages[i - 1];
         }
-        remeasure();
-        return true;
     }
 
     /**
-     * Переизмерить
+     * Переизмерить с текущими режимами автоматического определения частоты и
+     * обмера сигнала
      */
-    void remeasure() {
-        if (processAutoFreq()) {
-            setDeltaT(leftRulerPos, rightRulerPos);
-        }
-        processAutoMeasure();
+    synchronized void remeasure() {
+        measured = false;
+        ensureMeasured();
     }
 
     /**
@@ -483,50 +804,143 @@ class Result {
     /**
      * Доля каждой гармоники
      */
-    private final double[] harmonics = new double[AppProperties.getHarmonicsCount()];
+    private double[] harmonics = new double[AppProperties.getHarmonicsCount()];
+
+    /**
+     * Фаза каждой гармоники относительно косинуса, радиан
+     */
+    private double[] harmonicPhases = new double[AppProperties.getHarmonicsCount()];
+
+    /**
+     * Возвращает фазы гармоник относительно косинуса, отсчитанные от начала
+     * анализируемого участка
+     *
+     * @return массив фаз гармоник, радиан
+     */
+    double[] getHarmonicPhases() {
+        return harmonicPhases;
+    }
 
     /**
      * Коэффициент гармоник
      */
     private double kHarm;
 
+    /**
+     * Начало участка, для которого вычислены гармоники, или -1 если гармоники
+     * для текущих данных не вычислялись
+     */
+    private int harmonicsFrom = -1;
+
+    /**
+     * Конец участка, для которого вычислены гармоники
+     */
+    private int harmonicsTo;
+
+    /**
+     * Окно, с которым вычислены гармоники
+     */
+    private SpectrumWindow harmonicsWindow;
+
+    /**
+     * Вычислены ли гармоники в дБ
+     */
+    private boolean harmonicsDb;
+
+    /**
+     * Спектр участка сигнала между линейками, создаётся при первом анализе
+     * гармоник и используется повторно вместе с результатом
+     */
+    private SpectrumEngine spectrum;
+
+    /**
+     * Возвращает спектр участка сигнала, вычисленный последним вызовом
+     * {@link #processHarmonicsData(int, int)}
+     *
+     * @return спектр или null если анализ гармоник не выполнялся
+     */
+    SpectrumEngine getSpectrum() {
+        return spectrum;
+    }
+
     /**
      * Вычислить долю гармоник для периодического колебания, находящегося между
-     * двумя отметками графика
+     * двумя отметками графика. Участок от fromT до toT включительно считается
+     * одним периодом основной гармоники. Если выбрано окно, анализируется
+     * столько целых периодов, сколько помещается в блок данных, и гармоника с
+     * номером n - это элемент спектра n * (число периодов). Окно применяется,
+     * только если периодов больше, чем растекание окна в элементах спектра,
+     * иначе соседние гармоники смешиваются и анализ ведётся без окна.
      *
      * @param fromT от какой отметки начать
      * @param toT до какой отметки
      */
-    void processHarmonicsData(int fromT, int toT) {
-        if (fromT >= Const.ADC_DATA_BLOCK_SIZE || toT >= Const.ADC_DATA_BLOCK_SIZE) {
+    synchronized void processHarmonicsData(int fromT, int toT) {
+        SpectrumWindow window = AppProperties.getSpectrumWindow();
+        int harmonicsCount = AppProperties.getHarmonicsCount();
+        boolean db = AppProperties.isHarmonicsInDb();
+        if (fromT == harmonicsFrom && toT == harmonicsTo && window == harmonicsWindow
+                && harmonicsCount == harmonics.length && db == harmonicsDb) {
+            // уже вычислено для этих данных и параметров
+            return;
+        }
+        harmonicsFrom = fromT;
+        harmonicsTo = toT;
+        harmonicsWindow = window;
+        harmonicsDb = db;
+        ensureVoltages();
+        // количество отсчётов в одном периоде
+        int count = toT - fromT + 1;
+        if (fromT < 0 || fromT >= Const.ADC_DATA_BLOCK_SIZE || toT >= Const.ADC_DATA_BLOCK_SIZE || count < 2) {
             kHarm = 0;
             Arrays.fill(harmonics, 0);
+            Arrays.fill(harmonicPhases, 0);
             return;
         }
 
-        int harmonicsCount = AppProperties.getHarmonicsCount();
+        if (harmonics.length != harmonicsCount) {
+            // количество гармоник изменено в настройках
+            harmonics = new double[harmonicsCount];
+            harmonicPhases = new double[harmonicsCount];
+        }
+
+        // выбрать окно и сколько периодов анализировать
+        int periods = Const.ADC_DATA_BLOCK_SIZE / count;
+        if (window == SpectrumWindow.RECTANGULAR || periods <= window.getLeakage()) {
+            window = SpectrumWindow.RECTANGULAR;
+            periods = 1;
+        }
+        int length = periods * count;
+        int from = Math.min(fromT, Const.ADC_DATA_BLOCK_SIZE - length);
 
-        // определить количество значений для вычисления
-        int count = toT - fromT;
-        // шаг изменения фазы синусоиды
-        double dfi = 2 * Math.PI / count;
-        // перебор заданного количества гармоник
+        if (spectrum == null) {
+            spectrum = new SpectrumEngine();
+        }
+        spectrum.transform(voltages, from, length,
+                window == SpectrumWindow.RECTANGULAR ? null : window.getCoefficients(length));
+        // привести амплитуды к одному периоду без окна
+        double scale = periods * window.getCoherentGain();
+        // гармоники выше половины частоты дискретизации не различимы
+        int maxBin = length / 2;
+        // если период выставлен неточно, гармоника на нескольких периодах
+        // смещается с расчётного элемента, поэтому берётся наибольший элемент
+        // в пределах половины расстояния между гармониками
+        int half = (periods - 1) / 2;
         for (int i = 0; i < harmonicsCount; i++) {
-            // это фаза
-            double fi = dfi / 2;
-            // приращение фазы на каждом следующем отсчёте в зависимости от порядкового номера гармоники
-            double sdfi = (i + 1) * dfi;
-            // тут накапливаются значения
-            double value = 0;
-            // перебираем все значения в нашем диапазоне
-            for (int j = fromT; j <= toT; j++) {
-                // интегрируем
-                value += voltages[j] * Math.sin(fi);
-                // фаза на следующем отсчёте
-                fi += sdfi;
+            int bin = (i + 1) * periods;
+            if (bin <= maxBin) {
+                int peak = bin;
+                for (int k = Math.max(1, bin - half); k <= Math.min(maxBin, bin + half); k++) {
+                    if (spectrum.getMagnitude(k) > spectrum.getMagnitude(peak)) {
+                        peak = k;
+                    }
+                }
+                harmonics[i] = spectrum.getMagnitude(peak) / scale;
+                harmonicPhases[i] = spectrum.getPhase(peak);
+            } else {
+                harmonics[i] = 0;
+                harmonicPhases[i] = 0;
             }
-            // в данный момент есть накопленное значение гармоники
-            harmonics[i] = Math.abs(value);
         }
 
         // вычислить коэффициент гармоник
@@ -541,7 +955,6 @@ class Result {
         for (int i = 0; i < harmonicsCount; i++) {
             sum += harmonics[i];
         }
-        boolean db = AppProperties.isHarmonicsInDb();
         // здесь вычисляется доля каждой гармоники
         for (int i = 0; i < harmonicsCount; i++) {
             if (db) {
@@ -563,13 +976,13 @@ class Result {
 
     /**
      * Вычисляет напряжение по значению из АЦП в зависимости от текущих
-     * параметров выборки
+     * параметров выборки и калибровки устройства
      *
      * @param value значение выборки
      * @return напряжение
      */
     double adcValueToVoltage(int value) {
-        return ((value - Const.ADC_MIDDLE) * Const.VOLTAGES[currentVoltageIndex]) / Const.ADC_MIDDLE;
+        return calibration.getTable(currentVoltageIndex)[Math.max(0, Math.min(Const.ADC_MAX, value))];
     }
 
     /**
@@ -644,6 +1057,7 @@ class Result {
      * @return положение левой линейки
      */
     int getLeftRulerPos() {
+        ensureMeasured();
         return leftRulerPos;
     }
 
@@ -653,6 +1067,7 @@ class Result {
      * @return положение правой линейки
      */
     int getRightRulerPos() {
+        ensureMeasured();
         return rightRulerPos;
     }
 
@@ -671,6 +1086,7 @@ class Result {
      * @return the overloadSignal
      */
     boolean isOverloadSignal() {
+        ensureVoltages();
         return overloadSignal;
     }
 
@@ -689,6 +1105,7 @@ class Result {
      * @return положение верхней линейки
      */
     int getUpperRulerPos() {
+        ensureMeasured();
         return upperRulerPos;
     }
 
@@ -698,6 +1115,7 @@ class Result {
      * @return положение нижней линейки
      */
     int getLowerRulerPos() {
+        ensureMeasured();
         return lowerRulerPos;
     }
 
@@ -707,6 +1125,7 @@ class Result {
      * @return true если входной сигнал слишком слаб
      */
     boolean isTooLowSignal() {
+        ensureVoltages();
         return tooLowSignal;
     }
 
@@ -0,0 +1,155 @@
+package ua.com.kiloom.simplescope;
+
+/**
+ * Пул результатов измерений. Результат содержит несколько массивов на каждый
+ * кадр, поэтому вместо создания нового объекта на каждый кадр результаты
+ * берутся из пула и возвращаются в него, когда потребитель с ними закончил.
+ * Владение явное: кто получил результат из {@link #acquire} или
+ * {@link #retain}, тот обязан вернуть его через {@link #release} или
+ * передать это обязательство дальше. У результата может быть несколько
+ * владельцев (например, поток отрисовки и обработчик окна, сохраняющий
+ * его в файл), в пул он попадает, когда его вернут все.
+ * Если пул пуст (потребитель задерживает результаты), создаётся новый
+ * результат; лишние результаты при возврате в заполненный пул отбрасываются,
+ * так что пул не растёт больше своей ёмкости.
+ *
+ * @author Vasily Monakhov
+ */
+class ResultPool {
+
+    /**
+     * Свободные результаты, стек
+     */
+    private final Result[] free;
+
+    /**
+     * Количество свободных результатов
+     */
+    private int freeCount;
+
+    /**
+     * Сколько результатов было создано
+     */
+    private long allocated;
+
+    /**
+     * Сколько раз результат был взят из пула повторно
+     */
+    private long reused;
+
+    /**
+     * Создаёт пул результатов
+     *
+     * @param capacity сколько свободных результатов хранит пул
+     */
+    ResultPool(int capacity) {
+        free = new Result[capacity];
+    }
+
+    /**
+     * Взять результат из пула
+     *
+     * @param voltageIndex индекс предела напряжения для данных
+     * @param timeIndex индекс времени развёртки для данных
+     * @return результат, принадлежащий вызывающему
+     */
+    Result acquire(int voltageIndex, int timeIndex) {
+        Result r = null;
+        synchronized (free) {
+            if (freeCount > 0) {
+                r = free[--freeCount];
+                free[freeCount] = null;
+                r.setPooled(false);
+                r.setOwners(1);
+                reused++;
+            } else {
+                allocated++;
+            }
+        }
+        if (r == null) {
+            r = new Result(voltageIndex, timeIndex);
+            synchronized (free) {
+                r.setOwners(1);
+            }
+        } else {
+            r.reset(voltageIndex, timeIndex);
+        }
+        return r;
+    }
+
+    /**
+     * Добавить результату владельца. Результат не вернётся в пул, пока новый
+     * владелец не вызовет {@link #release}.
+     *
+     * @param r результат, которым уже владеет кто-то другой
+     */
+    void retain(Result r) {
+        synchronized (free) {
+            if (r.isPooled()) {
+                throw new IllegalStateException("Результат уже возвращён в пул");
+            }
+            r.setOwners(r.getOwners() + 1);
+        }
+    }
+
+    /**
+     * Вернуть результат в пул. После этого вызывающий не должен обращаться к
+     * результату. Если у результата есть другие владельцы, в пул он попадёт
+     * после возврата последним из них.
+     *
+     * @param r результат, может быть null
+     */
+    void release(Result r) {
+        if (r == null) {
+            return;
+        }
+        synchronized (free) {
+            if (r.isPooled()) {
+                throw new IllegalStateException("Результат уже возвращён в пул");
+            }
+            int owners = r.getOwners() - 1;
+            r.setOwners(owners);
+            if (owners > 0) {
+                return;
+            }
+            r.setPooled(true);
+            if (freeCount < free.length) {
+                free[freeCount++] = r;
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество свободных результатов в пуле
+     *
+     * @return количество свободных результатов
+     */
+    int size() {
+        synchronized (free) {
+            return freeCount;
+        }
+    }
+
+    /**
+     * Возвращает количество созданных результатов
+     *
+     * @return количество созданных результатов
+     */
+    long getAllocated() {
+        synchronized (free) {
+            return allocated;
+        }
+    }
+
+    /**
+     * Возвращает количество повторно использованных результатов
+     *
+     * @return количество повторно использованных результатов
+     */
+    long getReused() {
+        synchronized (free) {
+            return reused;
+        }
+    }
+
+}
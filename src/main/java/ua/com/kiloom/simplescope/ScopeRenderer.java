@@ -2,15 +2,10 @@ package ua.com.kiloom.simplescope;
 
 import java.awt.BasicStroke;
 import java.awt.Graphics2D;
-import java.awt.GraphicsConfiguration;
-import java.awt.GraphicsEnvironment;
 import java.awt.RenderingHints;
 import java.awt.Stroke;
-import java.awt.Transparency;
 import java.awt.image.BufferedImage;
 import java.util.Arrays;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * Класс для рисования графика
@@ -53,35 +48,14 @@ class ScopeRenderer {
     final static Stroke NORMAL_STROKE = new BasicStroke(1);
 
     /**
-     * Нажим для рисования луча
+     * Толщина луча, пикселей
      */
-    final static Stroke RAY_STROKE = new BasicStroke(3f, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_ROUND);
+    final static int RAY_WIDTH = 3;
 
     /**
-     * Точка на экране
+     * Нажим для рисования луча
      */
-    static class Point {
-
-        /**
-         * Ось абцисс, слева направо
-         */
-        int x;
-        /**
-         * Ось ординат сверху вниз
-         */
-        int y;
-
-        /**
-         * Создаёт точку
-         *
-         * @param x ось абцисс
-         * @param y ось ординат
-         */
-        Point(int x, int y) {
-            this.x = x;
-            this.y = y;
-        }
-    }
+    final static Stroke RAY_STROKE = new BasicStroke(RAY_WIDTH, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_ROUND);
 
     /**
      * масштаб по оси абцисс в зависимости от ширины области рисования
@@ -94,24 +68,90 @@ class ScopeRenderer {
     private double yScale;
 
     /**
-     * Преобразует набор результатов измерения АЦП устройства в набор точек
-     * графика
+     * Программная отрисовка луча
+     */
+    private final TraceRasterizer rasterizer = new TraceRasterizer();
+
+    /**
+     * Рисовать луч программно прямо в пиксели изображения
+     */
+    private volatile boolean directRay;
+
+    /**
+     * Выбрать способ отрисовки луча. Программная отрисовка быстрее на
+     * программном конвейере Java2D, но прямой доступ к пикселям лишает
+     * изображения аппаратного ускорения.
      *
-     * @return массив точек графика сигнала для отрисовки
+     * @param directRay true - программно, false - через Graphics2D
+     */
+    void setDirectRay(boolean directRay) {
+        this.directRay = directRay;
+    }
+
+    /**
+     * Абсциссы вершин луча
      */
-    private Point[] convertAdcResultToScopePoints() {
-        Point[] points = new Point[Const.ADC_DATA_BLOCK_SIZE];
+    private int[] rayX = new int[Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Ординаты вершин луча
+     */
+    private int[] rayY = new int[Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Преобразует набор результатов измерения АЦП устройства в вершины луча
+     * за один проход. Массивы вершин переиспользуются и выделяются заново
+     * только при увеличении области рисования.
+     *
+     * @return количество вершин луча
+     */
+    private int buildRay() {
         // вычислить масштаб по оси абцисс в зависимости от ширины области рисования
         xScale = ((double) width) / Const.ADC_DATA_BLOCK_SIZE;
         // вычислить масштаб по оси ординат в зависимости от высоты области рисования
         yScale = ((double) height) / Const.ADC_RANGE;
+        int[] data = result.getAdcData();
+        if (interpolation && xScale > 1) {
+            // меньше отсчёта на пиксель - интерполировать до точки на пиксель
+            int count = interpolator.interpolate(data, Const.ADC_DATA_BLOCK_SIZE, 1 / xScale);
+            if (rayX.length < count) {
+                rayX = new int[count];
+                rayY = new int[count];
+            }
+            double[] values = interpolator.getValues();
+            for (int i = 0; i < count; i++) {
+                double value = Math.max(0, Math.min(Const.ADC_MAX, values[i]));
+                rayX[i] = x_pos + i;
+                rayY[i] = (int) Math.round(yScale * (Const.ADC_MAX - value) + y_pos);
+            }
+            return count;
+        }
         // вычислить все точки графика
         for (int i = 0; i < Const.ADC_DATA_BLOCK_SIZE; i++) {
-            int x = (int) Math.round(xScale * i + x_pos);
-            int y = (int) Math.round(yScale * (Const.ADC_MAX - result.getAdcData()[i]) + y_pos);
-            points[i] = new Point(x, y);
+            rayX[i] = (int) Math.round(xScale * i + x_pos);
+            rayY[i] = (int) Math.round(yScale * (Const.ADC_MAX - data[i]) + y_pos);
         }
-        return points;
+        return Const.ADC_DATA_BLOCK_SIZE;
+    }
+
+    /**
+     * Интерполяция sin(x)/x
+     */
+    private final SincInterpolator interpolator = new SincInterpolator();
+
+    /**
+     * Интерполировать луч, когда на пиксель приходится меньше отсчёта
+     */
+    private volatile boolean interpolation = true;
+
+    /**
+     * Включить или выключить интерполяцию sin(x)/x. Интерполяция
+     * используется, только если область графика шире количества отсчётов.
+     *
+     * @param interpolation true - интерполировать
+     */
+    void setInterpolation(boolean interpolation) {
+        this.interpolation = interpolation;
     }
 
     /**
@@ -163,30 +203,101 @@ class ScopeRenderer {
      */
     void renderScope(int imageWidth, int imageHeight, Result result) throws InterruptedException {
         this.result = result;
-        BufferedImage image = getImage(imageWidth, imageHeight);
+        BufferedImage image = imagePool.acquire(imageWidth, imageHeight, ImagePool.Purpose.SCOPE);
         Graphics2D g = (Graphics2D) image.getGraphics();
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
         g.setFont(fontScheme.getScopeFont());
-        // залить цветом фона
-        g.setColor(colorScheme.getBackgroundColor());
-        g.fillRect(0, 0, imageWidth - 1, imageHeight - 1);
         calculateGeometry(imageWidth, imageHeight);
-        // нарисовать сетку
-        drawScopeGrid(g);
+        // фон, сетку и рамку скопировать из готового изображения
+        g.drawImage(getBackground(imageWidth, imageHeight), 0, 0, null);
+        boolean persistent = persistence;
+        if (persistent) {
+            // послесвечение заменяет луч и огибающую
+            g.drawImage(updatePersistence(), x_pos, y_pos, null);
+        }
         g.setStroke(NORMAL_STROKE);
         // нарисовать линейки
         drawRulers(g);
-        // нарисовать рамку
-        g.setColor(colorScheme.getBorderColor());
-        g.drawRect(x_pos, y_pos, width, height);
-        // нарисовать луч
-        drawRay(g);
+        if (!persistent) {
+            // нарисовать огибающую под лучом
+            if (result.hasEnvelope()) {
+                drawEnvelope(g);
+            }
+            // нарисовать луч
+            drawRay(g, image);
+        }
         g.dispose();
         // result.processHarmonicsData(leftRuler, rightRuler);
         result.setScopeImage(image);
     }
 
+    /**
+     * Изображение фона: заливка, сетка с подписями и рамка
+     */
+    private BufferedImage background;
+
+    /**
+     * Цветовая схема, с которой нарисован фон
+     */
+    private ColorScheme backgroundColorScheme;
+
+    /**
+     * Схема шрифтов, с которой нарисован фон
+     */
+    private FontScheme backgroundFontScheme;
+
+    /**
+     * Предел напряжения, с которым нарисован фон
+     */
+    private double backgroundVoltage;
+
+    /**
+     * Время развёртки, с которым нарисован фон
+     */
+    private double backgroundTime;
+
+    /**
+     * Возвращает изображение фона для текущего результата. Фон рисуется
+     * заново только при изменении размера, цветовой схемы, схемы шрифтов,
+     * предела напряжения или времени развёртки.
+     *
+     * @param imageWidth ширина области рисования
+     * @param imageHeight высота области рисования
+     * @return изображение фона
+     */
+    private BufferedImage getBackground(int imageWidth, int imageHeight) {
+        boolean sizeChanged = background == null
+                || background.getWidth() != imageWidth || background.getHeight() != imageHeight;
+        if (sizeChanged || backgroundColorScheme != colorScheme || backgroundFontScheme != fontScheme
+                || backgroundVoltage != result.getVoltage() || backgroundTime != result.getTime()) {
+            if (sizeChanged) {
+                if (background != null) {
+                    imagePool.release(background, ImagePool.Purpose.BACKGROUND);
+                }
+                background = imagePool.acquire(imageWidth, imageHeight, ImagePool.Purpose.BACKGROUND);
+            }
+            backgroundColorScheme = colorScheme;
+            backgroundFontScheme = fontScheme;
+            backgroundVoltage = result.getVoltage();
+            backgroundTime = result.getTime();
+            Graphics2D g = (Graphics2D) background.getGraphics();
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setFont(fontScheme.getScopeFont());
+            // залить цветом фона
+            g.setColor(colorScheme.getBackgroundColor());
+            g.fillRect(0, 0, imageWidth, imageHeight);
+            // нарисовать сетку
+            drawScopeGrid(g);
+            // нарисовать рамку
+            g.setColor(colorScheme.getBorderColor());
+            g.drawRect(x_pos, y_pos, width, height);
+            g.dispose();
+        }
+        return background;
+    }
+
     /**
      * Рисует сетку осциллоскопа
      *
@@ -212,77 +323,179 @@ class ScopeRenderer {
         }
     }
 
+    /**
+     * Режим послесвечения
+     */
+    private volatile boolean persistence;
+
+    /**
+     * Послесвечение нужно сбросить
+     */
+    private volatile boolean persistenceCleared;
+
+    /**
+     * Послесвечение луча
+     */
+    private final PersistenceBuffer persistenceBuffer = new PersistenceBuffer();
+
+    /**
+     * Последний результат, добавленный в послесвечение
+     */
+    private Result persistenceResult;
+
+    /**
+     * Предел напряжения, с которым накоплено послесвечение
+     */
+    private double persistenceVoltage;
+
+    /**
+     * Время развёртки, с которым накоплено послесвечение
+     */
+    private double persistenceTime;
+
+    /**
+     * Включить или выключить режим послесвечения
+     *
+     * @param persistence true - рисовать послесвечение вместо луча
+     * @param decay на сколько процентов затухает послесвечение за кадр, 0 -
+     * бесконечное послесвечение
+     */
+    void setPersistence(boolean persistence, int decay) {
+        persistenceBuffer.setDecay(decay);
+        if (persistence && !this.persistence) {
+            persistenceCleared = true;
+        }
+        this.persistence = persistence;
+    }
+
+    /**
+     * Сбросить послесвечение
+     */
+    void clearPersistence() {
+        persistenceCleared = true;
+    }
+
+    /**
+     * Добавить текущий результат в послесвечение и получить его изображение
+     *
+     * @return изображение послесвечения размером с область графика
+     */
+    private BufferedImage updatePersistence() {
+        persistenceBuffer.setSize(width + 1, height + 1);
+        if (persistenceCleared || result.getVoltage() != persistenceVoltage || result.getTime() != persistenceTime) {
+            persistenceCleared = false;
+            persistenceBuffer.clear();
+            persistenceVoltage = result.getVoltage();
+            persistenceTime = result.getTime();
+        }
+        // при перерисовке того же результата (линейки, размеры) не
+        // накапливать его повторно; новый результат не может совпасть с
+        // текущим, так как текущий не возвращается в пул, пока отображается
+        if (result != persistenceResult) {
+            persistenceResult = result;
+            persistenceBuffer.decay();
+            // buildRay() может заменить массивы вершин более длинными
+            int count = buildRay();
+            persistenceBuffer.addPolyline(rayX, rayY, count, x_pos, y_pos);
+        }
+        return persistenceBuffer.render(colorScheme.getPersistencePalette());
+    }
+
+    /**
+     * Абсциссы многоугольника огибающей: туда по максимумам, обратно по
+     * минимумам
+     */
+    private final int[] envelopeX = new int[2 * Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Ординаты многоугольника огибающей
+     */
+    private final int[] envelopeY = new int[2 * Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Нарисовать огибающую закрашенной полосой
+     *
+     * @param g графический контекст
+     */
+    private void drawEnvelope(Graphics2D g) {
+        double xs = ((double) width) / Const.ADC_DATA_BLOCK_SIZE;
+        double ys = ((double) height) / Const.ADC_RANGE;
+        int[] min = result.getEnvelopeMin();
+        int[] max = result.getEnvelopeMax();
+        int last = envelopeX.length - 1;
+        for (int i = 0; i < Const.ADC_DATA_BLOCK_SIZE; i++) {
+            int x = (int) Math.round(xs * i + x_pos);
+            envelopeX[i] = x;
+            envelopeY[i] = (int) Math.round(ys * (Const.ADC_MAX - max[i]) + y_pos);
+            envelopeX[last - i] = x;
+            envelopeY[last - i] = (int) Math.round(ys * (Const.ADC_MAX - min[i]) + y_pos);
+        }
+        g.setColor(colorScheme.getEnvelopeColor());
+        g.setStroke(NORMAL_STROKE);
+        g.fillPolygon(envelopeX, envelopeY, envelopeX.length);
+        // контур, чтобы полоса не пропадала там, где она тоньше пикселя
+        g.drawPolygon(envelopeX, envelopeY, envelopeX.length);
+    }
+
     /**
      * Нарисовать луч
      *
      * @param g графический контекст
+     * @param image изображение, на котором рисуется график
      */
-    private void drawRay(Graphics2D g) {
+    private void drawRay(Graphics2D g, BufferedImage image) {
+        int count = buildRay();
+        if (directRay && rasterizer.draw(image, rayX, rayY, count, colorScheme.getRayColor().getRGB() & 0xFFFFFF, RAY_WIDTH)) {
+            return;
+        }
+        // программная отрисовка выключена или изображение не поддерживается
         g.setColor(colorScheme.getRayColor());
         g.setStroke(RAY_STROKE);
-        Point[] points = convertAdcResultToScopePoints();
-        for (int i = 0; i < points.length - 1; i++) {
-            int x1 = points[i].x;
-            int y1 = points[i].y;
-            int x2 = points[i + 1].x;
-            int y2 = points[i + 1].y;
-            g.drawLine(x1, y1, x2, y2);
-        }
+        // одна ломаная вместо отрезков: соединения рисуются штрихом как
+        // положено и весь луч уходит в конвейер за один вызов
+        g.drawPolyline(rayX, rayY, count);
     }
 
+
     /**
-     * Очередь для повторного использования изображений. Это позволяет экономить
+     * Пул изображений для повторного использования. Это позволяет экономить
      * память и меньше мусорить.
      */
-    private final BlockingQueue<BufferedImage> imagesQueue = new LinkedBlockingQueue<>();
+    private final ImagePool imagePool;
+
+    /**
+     * Создаёт рисовальщик
+     */
+    ScopeRenderer() {
+        this(new ImagePool(Const.IMAGE_POOL_MAX_PIXELS));
+    }
 
     /**
-     * Возвращает изображение из очереди, если там нет или изображения не
-     * подходят по размеру (изменились размеры главного окна), очередь очищается
-     * и создаётся новое изображение.
+     * Создаёт рисовальщик с заданным пулом изображений
      *
-     * @param imageWidth требуемая ширина
-     * @param imageHeight требуемая высота
-     * @return изображение
-     * @throws InterruptedException
+     * @param imagePool пул изображений
      */
-    private BufferedImage getImage(int imageWidth, int imageHeight) throws InterruptedException {
-        if (imagesQueue.isEmpty()) {
-            return createNewImage(imageWidth, imageHeight);
-        } else {
-            BufferedImage getted = imagesQueue.take();
-            if (getted.getWidth() != imageWidth || getted.getHeight() != imageHeight) {
-                imagesQueue.clear();
-                return createNewImage(imageWidth, imageHeight);
-            }
-            return getted;
-        }
+    ScopeRenderer(ImagePool imagePool) {
+        this.imagePool = imagePool;
     }
 
     /**
-     * Создаёт новое извображение
+     * Возвращает пул изображений
      *
-     * @param imageWidth требуемая ширина
-     * @param imageHeight требуемая высота
-     * @return созданное изображение
-     */
-    private BufferedImage createNewImage(int imageWidth, int imageHeight) {
-        GraphicsConfiguration gfx_config = GraphicsEnvironment.
-                getLocalGraphicsEnvironment().getDefaultScreenDevice().
-                getDefaultConfiguration();
-        BufferedImage image = gfx_config.createCompatibleImage(imageWidth, imageHeight, Transparency.OPAQUE);
-        image.setAccelerationPriority(1);
-        return image;
+     * @return пул изображений
+     */
+    ImagePool getImagePool() {
+        return imagePool;
     }
 
     /**
-     * Возвращает изображение в очередь
+     * Возвращает изображение в пул
      *
      * @param image изображение
-     * @throws InterruptedException
+     * @param purpose назначение, с которым изображение было получено
      */
-    void returnUsedImage(BufferedImage image) throws InterruptedException {
-        imagesQueue.put(image);
+    void returnUsedImage(BufferedImage image, ImagePool.Purpose purpose) {
+        imagePool.release(image, purpose);
     }
 
     /**
@@ -462,7 +675,7 @@ class ScopeRenderer {
         this.result = result;
         updateRulers();
         result.processHarmonicsData(leftRuler, rightRuler);
-        BufferedImage image = getImage(imageWidth, imageHeight);
+        BufferedImage image = imagePool.acquire(imageWidth, imageHeight, ImagePool.Purpose.HARMONICS);
         Graphics2D g = (Graphics2D) image.getGraphics();
         g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
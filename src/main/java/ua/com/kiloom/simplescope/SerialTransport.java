@@ -0,0 +1,100 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.Arrays;
+import jssc.SerialPort;
+import jssc.SerialPortEvent;
+import jssc.SerialPortEventListener;
+import jssc.SerialPortException;
+import jssc.SerialPortList;
+import jssc.SerialPortTimeoutException;
+
+/**
+ * Канал связи с устройством через последовательный порт
+ *
+ * @author Vasily Monakhov
+ */
+class SerialTransport implements DeviceTransport {
+
+    /**
+     * Последовательный порт
+     */
+    private final SerialPort port;
+
+    /**
+     * Параметры порта
+     */
+    private final LinkParameters link;
+
+    /**
+     * Создаёт канал связи через последовательный порт
+     *
+     * @param portName имя порта
+     * @param link параметры порта
+     */
+    SerialTransport(String portName, LinkParameters link) {
+        port = new SerialPort(portName);
+        this.link = link;
+    }
+
+    @Override
+    public String getName() {
+        return port.getPortName();
+    }
+
+    @Override
+    public boolean isPresent() {
+        return Arrays.asList(SerialPortList.getPortNames()).contains(port.getPortName());
+    }
+
+    @Override
+    public int getBytesPerSecond() {
+        return link.getBytesPerSecond();
+    }
+
+    @Override
+    public void open(final Listener listener) throws SerialPortException {
+        port.openPort();
+        port.setParams(link.getBaudRate(),
+                link.getDataBits(),
+                link.getStopBits(),
+                link.getParity());
+        port.addEventListener(new SerialPortEventListener() {
+            @Override
+            public void serialEvent(SerialPortEvent event) {
+                listener.dataAvailable(event.getEventValue());
+            }
+        }, SerialPort.MASK_RXCHAR);
+    }
+
+    @Override
+    public boolean isOpened() {
+        return port.isOpened();
+    }
+
+    @Override
+    public void close() throws SerialPortException {
+        port.closePort();
+    }
+
+    @Override
+    public void purge() throws SerialPortException {
+        port.purgePort(SerialPort.PURGE_RXCLEAR | SerialPort.PURGE_RXABORT);
+    }
+
+    @Override
+    public void readBytes(byte[] buffer, int count, int timeout) throws SerialPortException, SerialPortTimeoutException {
+        // jssc не умеет читать в готовый буфер, его массив живёт недолго
+        System.arraycopy(port.readBytes(count, timeout), 0, buffer, 0, count);
+    }
+
+    @Override
+    public void writeByte(byte b) throws SerialPortException {
+        port.writeByte(b);
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes) throws SerialPortException {
+        port.writeBytes(bytes);
+    }
+
+}
@@ -0,0 +1,534 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import jssc.SerialPortException;
+import jssc.SerialPortTimeoutException;
+
+/**
+ * Программная модель устройства. Понимает те же команды, что и настоящий
+ * скоп, и с заданной частотой выдаёт синтетические блоки данных АЦП. Нужна
+ * для проверки и нагрузочного тестирования всей цепочки обработки без
+ * подключенного устройства, в том числе на скоростях, недоступных настоящему
+ * устройству.
+ *
+ * @author Vasily Monakhov
+ */
+class SimulatedDevice implements DeviceTransport {
+
+    /**
+     * Имя порта, под которым модель видна в списке портов. Модели с другими
+     * именами, начинающимися с него, позволяют открыть несколько моделей
+     * одновременно.
+     */
+    static final String PORT_NAME = "SIMULATOR";
+
+    /**
+     * Ёмкость выходного буфера модели в блоках
+     */
+    private static final int BUFFER_BLOCKS = 64;
+
+    /**
+     * Амплитуда основной гармоники сигнала, В
+     */
+    private static final double SIGNAL_AMPLITUDE = 2d;
+
+    /**
+     * Доля третьей гармоники в сигнале
+     */
+    private static final double SIGNAL_THIRD_HARMONIC = 0.2d;
+
+    /**
+     * Постоянная составляющая сигнала, В
+     */
+    private static final double SIGNAL_DC = 0.5d;
+
+    /**
+     * Частота сигнала, Гц
+     */
+    private static final double SIGNAL_FREQUENCY = 1000d;
+
+    /**
+     * Размах шума в отсчётах АЦП
+     */
+    private static final int NOISE = 4;
+
+    /**
+     * Имя порта модели
+     */
+    private final String name;
+
+    /**
+     * Количество блоков в секунду
+     */
+    private final double blocksPerSecond;
+
+    /**
+     * Создаёт модель устройства с именем {@link #PORT_NAME}
+     *
+     * @param blocksPerSecond сколько блоков данных в секунду выдавать,
+     * больше нуля
+     * @throws IllegalArgumentException если скорость не положительна или не
+     * конечна
+     */
+    SimulatedDevice(double blocksPerSecond) {
+        this(PORT_NAME, blocksPerSecond);
+    }
+
+    /**
+     * Создаёт модель устройства
+     *
+     * @param name имя порта, оно же идентификатор устройства
+     * @param blocksPerSecond сколько блоков данных в секунду выдавать,
+     * больше нуля
+     * @throws IllegalArgumentException если скорость не положительна или не
+     * конечна
+     */
+    SimulatedDevice(String name, double blocksPerSecond) {
+        if (!(blocksPerSecond > 0) || Double.isInfinite(blocksPerSecond)) {
+            throw new IllegalArgumentException("Недопустимая скорость модели устройства: " + blocksPerSecond);
+        }
+        this.name = name;
+        this.blocksPerSecond = blocksPerSecond;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isPresent() {
+        return true;
+    }
+
+    @Override
+    public int getBytesPerSecond() {
+        return (int) Math.round(blocksPerSecond * Const.BYTES_BLOCK_SIZE);
+    }
+
+    /**
+     * Завис ли поток данных
+     */
+    private volatile boolean stalled;
+
+    /**
+     * Остановить или возобновить выдачу данных, как будто связь с устройством
+     * зависла
+     *
+     * @param stalled true чтобы прекратить выдачу данных
+     */
+    void setStalled(boolean stalled) {
+        this.stalled = stalled;
+    }
+
+    /**
+     * Поток, генерирующий данные
+     */
+    private volatile Thread generator;
+
+    /**
+     * Слушатель поступления данных
+     */
+    private volatile Listener listener;
+
+    @Override
+    public void open(Listener listener) throws SerialPortException {
+        if (generator != null) {
+            throw new SerialPortException(name, "openPort()", SerialPortException.TYPE_PORT_ALREADY_OPENED);
+        }
+        this.listener = listener;
+        generator = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                generate();
+            }
+        }, name);
+        generator.setDaemon(true);
+        generator.start();
+    }
+
+    @Override
+    public boolean isOpened() {
+        return generator != null;
+    }
+
+    @Override
+    public void close() throws SerialPortException {
+        if (generator == null) {
+            throw new SerialPortException(name, "closePort()", SerialPortException.TYPE_PORT_NOT_OPENED);
+        }
+        generator.interrupt();
+        generator = null;
+        listener = null;
+    }
+
+    /**
+     * Блокировка выходного буфера
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * Сигнал о появлении данных в выходном буфере
+     */
+    private final Condition dataReady = lock.newCondition();
+
+    /**
+     * Выходной буфер модели, кольцевой
+     */
+    private final byte[] buffer = new byte[BUFFER_BLOCKS * Const.BYTES_BLOCK_SIZE];
+
+    /**
+     * Позиция чтения из выходного буфера
+     */
+    private int readPos;
+
+    /**
+     * Количество байтов в выходном буфере
+     */
+    private int available;
+
+    /**
+     * Количество блоков, потерянных из-за переполнения выходного буфера
+     */
+    private long overruns;
+
+    /**
+     * Возвращает количество блоков, потерянных из-за того, что данные не
+     * успевали забирать
+     *
+     * @return количество потерянных блоков
+     */
+    long getOverruns() {
+        lock.lock();
+        try {
+            return overruns;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void purge() throws SerialPortException {
+        lock.lock();
+        try {
+            readPos = 0;
+            available = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void readBytes(byte[] data, int count, int timeout) throws SerialPortException, SerialPortTimeoutException {
+        if (count > buffer.length) {
+            throw new SerialPortException(name, "readBytes()", SerialPortException.TYPE_PARAMETER_IS_NOT_CORRECT);
+        }
+        lock.lock();
+        try {
+            long nanos = TimeUnit.MILLISECONDS.toNanos(timeout);
+            while (available < count) {
+                if (nanos <= 0) {
+                    throw new SerialPortTimeoutException(name, "readBytes()", timeout);
+                }
+                nanos = dataReady.awaitNanos(nanos);
+            }
+            int first = Math.min(count, buffer.length - readPos);
+            System.arraycopy(buffer, readPos, data, 0, first);
+            System.arraycopy(buffer, 0, data, first, count - first);
+            readPos = (readPos + count) % buffer.length;
+            available -= count;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SerialPortException(name, "readBytes()", SerialPortException.TYPE_LISTENER_THREAD_INTERRUPTED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void writeByte(byte b) throws SerialPortException {
+        if (!isOpened()) {
+            throw new SerialPortException(name, "writeByte()", SerialPortException.TYPE_PORT_NOT_OPENED);
+        }
+        parseCommandByte(b & 0xFF);
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes) throws SerialPortException {
+        if (!isOpened()) {
+            throw new SerialPortException(name, "writeBytes()", SerialPortException.TYPE_PORT_NOT_OPENED);
+        }
+        for (byte b : bytes) {
+            parseCommandByte(b & 0xFF);
+        }
+    }
+
+    /**
+     * Первый байт принимаемой команды, 0 если команда не принимается
+     */
+    private int command;
+
+    /**
+     * Принят ли второй байт команды
+     */
+    private boolean commandConfirmed;
+
+    /**
+     * Аргументы принимаемой команды
+     */
+    private final int[] args = new int[2];
+
+    /**
+     * Количество принятых аргументов
+     */
+    private int argsCount;
+
+    /**
+     * Индекс предела измерения
+     */
+    private volatile int voltageIndex;
+
+    /**
+     * Индекс времени развёртки
+     */
+    private volatile int timeIndex;
+
+    /**
+     * Режим входа: 0 - переменный, 1 - земля, 2 - постоянный
+     */
+    private volatile int input = 2;
+
+    /**
+     * Режим синхронизации: 0 - авто, 1 - нет, 2 - по уровню
+     */
+    private volatile int synch = 1;
+
+    /**
+     * Уровень синхронизации 0-200
+     */
+    private volatile int synchLevel = 100;
+
+    /**
+     * Синхронизация по фронту
+     */
+    private volatile boolean synchFront = true;
+
+    /**
+     * Уровень смещения нуля
+     */
+    private volatile int zeroLevel = 125;
+
+    /**
+     * Возвращает количество аргументов команды
+     *
+     * @param cmd первый байт команды
+     * @return количество аргументов или -1 если команда неизвестна
+     */
+    private static int commandArgsCount(int cmd) {
+        switch (cmd) {
+            case 0xAA:
+            case 0xAC:
+            case 0xCA:
+            case 0xDA:
+                return 1;
+            case 0xCC:
+                return 2;
+            case 0xBA:
+            case 0xBC:
+            case 0xBE:
+            case 0xCE:
+                return 0;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Разбирает очередной байт команды, поступивший от программы
+     *
+     * @param b байт
+     */
+    private synchronized void parseCommandByte(int b) {
+        if (command == 0) {
+            if (commandArgsCount(b) >= 0) {
+                command = b;
+                commandConfirmed = false;
+                argsCount = 0;
+            }
+            return;
+        }
+        if (!commandConfirmed) {
+            if (b == command + 1) {
+                commandConfirmed = true;
+                if (commandArgsCount(command) == 0) {
+                    executeCommand();
+                }
+            } else {
+                // последовательность нарушена, начать разбор заново
+                command = 0;
+                parseCommandByte(b);
+            }
+            return;
+        }
+        args[argsCount++] = b;
+        if (argsCount == commandArgsCount(command)) {
+            executeCommand();
+        }
+    }
+
+    /**
+     * Выполняет полностью принятую команду
+     */
+    private void executeCommand() {
+        switch (command) {
+            case 0xAA:
+                if (args[0] >= 50 && args[0] < 50 + Const.VOLTAGES.length) {
+                    voltageIndex = args[0] - 50;
+                }
+                break;
+            case 0xAC:
+                if (args[0] >= 20 && args[0] < 20 + Const.TIMES.length) {
+                    timeIndex = args[0] - 20;
+                }
+                break;
+            case 0xBA:
+                input = 0;
+                break;
+            case 0xBC:
+                input = 1;
+                break;
+            case 0xBE:
+                input = 2;
+                break;
+            case 0xCA:
+                synch = 0;
+                synchFront = args[0] == 0x10;
+                break;
+            case 0xCC:
+                synch = 2;
+                synchLevel = args[0];
+                synchFront = args[1] == 0x10;
+                break;
+            case 0xCE:
+                synch = 1;
+                break;
+            case 0xDA:
+                zeroLevel = args[0];
+                break;
+        }
+        command = 0;
+    }
+
+    /**
+     * Возвращает индекс предела измерения, установленного командой
+     *
+     * @return индекс предела измерения
+     */
+    int getVoltageIndex() {
+        return voltageIndex;
+    }
+
+    /**
+     * Возвращает индекс времени развёртки, установленного командой
+     *
+     * @return индекс времени развёртки
+     */
+    int getTimeIndex() {
+        return timeIndex;
+    }
+
+    /**
+     * Цикл генерации данных
+     */
+    private void generate() {
+        long period = (long) (TimeUnit.SECONDS.toNanos(1) / blocksPerSecond);
+        long deadline = System.nanoTime();
+        byte[] block = new byte[Const.BYTES_BLOCK_SIZE];
+        Random random = new Random();
+        double phase = 0;
+        while (!Thread.currentThread().isInterrupted()) {
+            if (!stalled) {
+                phase = fillBlock(block, phase, random);
+                int size = putBlock(block);
+                Listener l = listener;
+                if (l != null) {
+                    l.dataAvailable(size);
+                }
+            }
+            deadline += period;
+            long delay = deadline - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            } else if (-delay > TimeUnit.SECONDS.toNanos(1)) {
+                // сильно отстали, не пытаться догонять
+                deadline = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Заполняет блок отсчётами синтетического сигнала
+     *
+     * @param block блок
+     * @param phase фаза сигнала в начале блока для свободной развёртки
+     * @param random генератор шума
+     * @return фаза сигнала в начале следующего блока
+     */
+    private double fillBlock(byte[] block, double phase, Random random) {
+        double range = Const.VOLTAGES[voltageIndex];
+        double dt = Const.TIMES[timeIndex] / Const.ADC_DATA_BLOCK_SIZE;
+        double dfi = 2 * Math.PI * SIGNAL_FREQUENCY * dt;
+        double dc = input == 2 ? SIGNAL_DC : 0;
+        double amplitude = input == 1 ? 0 : SIGNAL_AMPLITUDE;
+        double fi = phase;
+        if (synch != 1 && amplitude > 0) {
+            // начать блок с момента пересечения уровня синхронизации
+            double level = synch == 2 ? (synchLevel - 100) / 100d * range - dc : 0;
+            double x = Math.max(-1d, Math.min(1d, level / amplitude));
+            fi = synchFront ? Math.asin(x) : Math.PI - Math.asin(x);
+        }
+        int offset = (zeroLevel - 125) * 8;
+        for (int i = 0; i < Const.ADC_DATA_BLOCK_SIZE; i++) {
+            double v = dc + amplitude * (Math.sin(fi) + SIGNAL_THIRD_HARMONIC * Math.sin(3 * fi));
+            int value = Const.ADC_MIDDLE + offset + (int) Math.round(v / range * Const.ADC_MIDDLE)
+                    + random.nextInt(NOISE + 1) - NOISE / 2;
+            value = Math.max(0, Math.min(Const.ADC_MAX, value));
+            block[2 * i] = (byte) (value >> 8);
+            block[2 * i + 1] = (byte) value;
+            fi += dfi;
+        }
+        // свободная развёртка продолжается с той же фазы через период выдачи блоков
+        return (phase + 2 * Math.PI * SIGNAL_FREQUENCY / blocksPerSecond) % (2 * Math.PI);
+    }
+
+    /**
+     * Помещает блок в выходной буфер
+     *
+     * @param block блок
+     * @return количество байтов в буфере
+     */
+    private int putBlock(byte[] block) {
+        lock.lock();
+        try {
+            if (available + block.length > buffer.length) {
+                // данные не забирают, блок теряется как при переполнении UART
+                overruns++;
+                return available;
+            }
+            int writePos = (readPos + available) % buffer.length;
+            int first = Math.min(block.length, buffer.length - writePos);
+            System.arraycopy(block, 0, buffer, writePos, first);
+            System.arraycopy(block, first, buffer, 0, block.length - first);
+            available += block.length;
+            dataReady.signalAll();
+            return available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,133 @@
+package ua.com.kiloom.simplescope;
+
+/**
+ * Интерполяция sin(x)/x для отображения сигнала на области шире количества
+ * отсчётов. Вместо прямых между отсчётами значения между ними
+ * восстанавливаются свёрткой с функцией sin(x)/x, ограниченной окном
+ * Блэкмана, поэтому фронты и вершины синусоид не искажаются ломаной.
+ *
+ * Положение между отсчётами округляется до одной из {@link #PHASES} фаз, для
+ * каждой фазы коэффициенты фильтра вычислены заранее (многофазная таблица),
+ * поэтому точка результата стоит {@link #TAPS} умножений.
+ *
+ * Экземпляр не потокобезопасен.
+ *
+ * @author Vasily Monakhov
+ */
+class SincInterpolator {
+
+    /**
+     * Количество отсчётов с каждой стороны от точки
+     */
+    static final int HALF_TAPS = 8;
+
+    /**
+     * Длина фильтра
+     */
+    static final int TAPS = 2 * HALF_TAPS;
+
+    /**
+     * Количество фаз между соседними отсчётами
+     */
+    static final int PHASES = 64;
+
+    /**
+     * Коэффициенты фильтра по фазам. Для фазы p точка лежит на p / PHASES
+     * правее отсчёта i, коэффициент k относится к отсчёту
+     * i - HALF_TAPS + 1 + k.
+     */
+    private static final double[][] KERNEL = new double[PHASES][TAPS];
+
+    static {
+        for (int p = 0; p < PHASES; p++) {
+            double frac = (double) p / PHASES;
+            double sum = 0;
+            for (int k = 0; k < TAPS; k++) {
+                // расстояние от точки до отсчёта
+                double x = k - HALF_TAPS + 1 - frac;
+                double sinc = x == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+                // окно Блэкмана шириной TAPS с центром в точке
+                double w = (x + HALF_TAPS) / TAPS;
+                double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * w) + 0.08 * Math.cos(4 * Math.PI * w);
+                KERNEL[p][k] = sinc * window;
+                sum += KERNEL[p][k];
+            }
+            // постоянная составляющая должна проходить без изменений
+            for (int k = 0; k < TAPS; k++) {
+                KERNEL[p][k] /= sum;
+            }
+        }
+    }
+
+    /**
+     * Значения результата
+     */
+    private double[] values = new double[0];
+
+    /**
+     * Количество значений результата
+     */
+    private int count;
+
+    /**
+     * Интерполировать отсчёты с равным шагом
+     *
+     * @param data значения АЦП
+     * @param length количество отсчётов
+     * @param step шаг результата в отсчётах, меньше 1 при увеличении
+     * @return количество значений результата; первое соответствует первому
+     * отсчёту, последнее не дальше последнего отсчёта
+     */
+    int interpolate(int[] data, int length, double step) {
+        count = (int) ((length - 1) / step) + 1;
+        if (values.length < count) {
+            values = new double[count];
+        }
+        int last = length - 1;
+        for (int j = 0; j < count; j++) {
+            double t = j * step;
+            int i = (int) t;
+            int p = (int) Math.round((t - i) * PHASES);
+            if (p == PHASES) {
+                i++;
+                p = 0;
+            }
+            double[] kernel = KERNEL[p];
+            int first = i - HALF_TAPS + 1;
+            double sum = 0;
+            if (first >= 0 && first + TAPS <= length) {
+                for (int k = 0; k < TAPS; k++) {
+                    sum += data[first + k] * kernel[k];
+                }
+            } else {
+                // у краёв повторить крайние отсчёты
+                for (int k = 0; k < TAPS; k++) {
+                    int index = first + k;
+                    sum += data[index < 0 ? 0 : index > last ? last : index] * kernel[k];
+                }
+            }
+            values[j] = sum;
+        }
+        return count;
+    }
+
+    /**
+     * Возвращает значения последней интерполяции. Массив внутренний и может
+     * быть длиннее результата.
+     *
+     * @return значения, в единицах АЦП
+     */
+    double[] getValues() {
+        return values;
+    }
+
+    /**
+     * Возвращает количество значений последней интерполяции
+     *
+     * @return количество значений
+     */
+    int getCount() {
+        return count;
+    }
+
+}
@@ -0,0 +1,434 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Вычисление спектра участка сигнала быстрым преобразованием Фурье. Для длины,
+ * равной степени двойки, используется итеративное БПФ по основанию 2, для
+ * любой другой длины - алгоритм Блюстейна, который сводит преобразование к
+ * свёртке через БПФ длины степени двойки. Таблицы поворотных множителей
+ * вычисляются один раз для длины участка и хранятся в общем для всех
+ * экземпляров кэше, вытесняющем давно не использованные длины. Рабочие
+ * массивы выделяются заранее, поэтому повторные преобразования той же длины
+ * память не выделяют.
+ *
+ * Экземпляр не потокобезопасен: каждый поток должен иметь свой.
+ *
+ * @author Vasily Monakhov
+ */
+class SpectrumEngine {
+
+    /**
+     * Заранее вычисленные таблицы для преобразования заданной длины.
+     * Неизменяемы после создания.
+     */
+    static final class Plan {
+
+        /**
+         * Длина преобразования
+         */
+        final int size;
+
+        /**
+         * Длина внутреннего БПФ, степень двойки
+         */
+        final int fftSize;
+
+        /**
+         * Перестановка с обратным порядком битов
+         */
+        final int[] bitReverse;
+
+        /**
+         * Косинусы поворотных множителей
+         */
+        final double[] cos;
+
+        /**
+         * Минус синусы поворотных множителей
+         */
+        final double[] sin;
+
+        /**
+         * Действительная часть ЛЧМ-множителей Блюстейна, null для степени
+         * двойки
+         */
+        final double[] chirpRe;
+
+        /**
+         * Мнимая часть ЛЧМ-множителей Блюстейна
+         */
+        final double[] chirpIm;
+
+        /**
+         * Действительная часть спектра ядра свёртки Блюстейна
+         */
+        final double[] kernelRe;
+
+        /**
+         * Мнимая часть спектра ядра свёртки Блюстейна
+         */
+        final double[] kernelIm;
+
+        /**
+         * Вычисляет таблицы
+         *
+         * @param size длина преобразования
+         */
+        Plan(int size) {
+            this.size = size;
+            boolean powerOfTwo = (size & (size - 1)) == 0;
+            int m = 1;
+            while (m < (powerOfTwo ? size : 2 * size - 1)) {
+                m <<= 1;
+            }
+            fftSize = m;
+            bitReverse = new int[m];
+            int bits = Integer.numberOfTrailingZeros(m);
+            for (int i = 0; i < m; i++) {
+                bitReverse[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+            }
+            cos = new double[m / 2];
+            sin = new double[m / 2];
+            for (int i = 0; i < m / 2; i++) {
+                double fi = 2 * Math.PI * i / m;
+                cos[i] = Math.cos(fi);
+                sin[i] = -Math.sin(fi);
+            }
+            if (powerOfTwo) {
+                chirpRe = null;
+                chirpIm = null;
+                kernelRe = null;
+                kernelIm = null;
+            } else {
+                chirpRe = new double[size];
+                chirpIm = new double[size];
+                kernelRe = new double[m];
+                kernelIm = new double[m];
+                for (int j = 0; j < size; j++) {
+                    // j^2 по модулю 2*size, чтобы не терять точность на больших j
+                    double fi = Math.PI * ((long) j * j % (2L * size)) / size;
+                    chirpRe[j] = Math.cos(fi);
+                    chirpIm[j] = -Math.sin(fi);
+                    kernelRe[j] = chirpRe[j];
+                    kernelIm[j] = -chirpIm[j];
+                    if (j > 0) {
+                        kernelRe[m - j] = kernelRe[j];
+                        kernelIm[m - j] = kernelIm[j];
+                    }
+                }
+                fft(this, kernelRe, kernelIm);
+            }
+        }
+
+        /**
+         * Используется ли алгоритм Блюстейна
+         *
+         * @return true если длина не степень двойки
+         */
+        boolean isBluestein() {
+            return chirpRe != null;
+        }
+    }
+
+    /**
+     * Прямое БПФ по основанию 2 на месте
+     *
+     * @param plan таблицы
+     * @param re действительная часть, длина {@link Plan#fftSize}
+     * @param im мнимая часть, длина {@link Plan#fftSize}
+     */
+    static void fft(Plan plan, double[] re, double[] im) {
+        int m = plan.fftSize;
+        for (int i = 0; i < m; i++) {
+            int j = plan.bitReverse[i];
+            if (i < j) {
+                double t = re[i];
+                re[i] = re[j];
+                re[j] = t;
+                t = im[i];
+                im[i] = im[j];
+                im[j] = t;
+            }
+        }
+        for (int len = 2; len <= m; len <<= 1) {
+            int half = len >> 1;
+            int step = m / len;
+            for (int i = 0; i < m; i += len) {
+                for (int k = 0; k < half; k++) {
+                    double wr = plan.cos[k * step];
+                    double wi = plan.sin[k * step];
+                    int a = i + k;
+                    int b = a + half;
+                    double tr = re[b] * wr - im[b] * wi;
+                    double ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+    }
+
+    /**
+     * Общий кэш таблиц по длине преобразования, в порядке последнего
+     * обращения
+     */
+    private static final Map<Integer, Plan> PLANS = new LinkedHashMap<Integer, Plan>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Plan> eldest) {
+            return size() > Const.SPECTRUM_PLAN_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Количество обращений к таблицам, найденным в кэше
+     */
+    private static final AtomicLong planHits = new AtomicLong();
+
+    /**
+     * Количество вычислений таблиц
+     */
+    private static final AtomicLong planMisses = new AtomicLong();
+
+    /**
+     * Возвращает количество обращений к кэшу таблиц, для которых таблицы уже
+     * были вычислены
+     *
+     * @return количество попаданий
+     */
+    static long getPlanHits() {
+        return planHits.get();
+    }
+
+    /**
+     * Возвращает количество вычислений таблиц
+     *
+     * @return количество промахов кэша
+     */
+    static long getPlanMisses() {
+        return planMisses.get();
+    }
+
+    /**
+     * Возвращает количество длин, для которых таблицы хранятся в кэше
+     *
+     * @return количество таблиц в кэше
+     */
+    static int getCachedPlans() {
+        synchronized (PLANS) {
+            return PLANS.size();
+        }
+    }
+
+    /**
+     * Очистить кэш таблиц и статистику
+     */
+    static void clearPlanCache() {
+        synchronized (PLANS) {
+            PLANS.clear();
+        }
+        planHits.set(0);
+        planMisses.set(0);
+    }
+
+    /**
+     * Возвращает таблицы для преобразования заданной длины из общего кэша,
+     * вычисляя их при необходимости
+     *
+     * @param size длина преобразования
+     * @return таблицы
+     */
+    static Plan getCachedPlan(int size) {
+        Integer key = size;
+        synchronized (PLANS) {
+            Plan p = PLANS.get(key);
+            if (p != null) {
+                planHits.incrementAndGet();
+                return p;
+            }
+        }
+        // вычислять вне блокировки, таблицы неизменяемы
+        Plan p = new Plan(size);
+        planMisses.incrementAndGet();
+        synchronized (PLANS) {
+            PLANS.put(key, p);
+        }
+        return p;
+    }
+
+    /**
+     * Таблицы для текущей длины
+     */
+    private Plan plan;
+
+    /**
+     * Рабочий массив, действительная часть
+     */
+    private double[] workRe = new double[0];
+
+    /**
+     * Рабочий массив, мнимая часть
+     */
+    private double[] workIm = new double[0];
+
+    /**
+     * Спектр, действительная часть
+     */
+    private double[] re = new double[0];
+
+    /**
+     * Спектр, мнимая часть
+     */
+    private double[] im = new double[0];
+
+    /**
+     * Длина последнего преобразования
+     */
+    private int size;
+
+    /**
+     * Возвращает таблицы для преобразования заданной длины
+     *
+     * @param size длина преобразования
+     * @return таблицы
+     */
+    Plan getPlan(int size) {
+        if (plan != null && plan.size == size) {
+            // та же длина, что и в прошлый раз - обычный случай при
+            // неподвижных линейках
+            planHits.incrementAndGet();
+        } else {
+            plan = getCachedPlan(size);
+        }
+        return plan;
+    }
+
+    /**
+     * Вычислить спектр участка вещественного сигнала
+     *
+     * @param samples отсчёты сигнала
+     * @param from индекс первого отсчёта участка
+     * @param count количество отсчётов участка
+     */
+    void transform(double[] samples, int from, int count) {
+        transform(samples, from, count, null);
+    }
+
+    /**
+     * Вычислить спектр участка вещественного сигнала, умноженного на оконную
+     * функцию
+     *
+     * @param samples отсчёты сигнала
+     * @param from индекс первого отсчёта участка
+     * @param count количество отсчётов участка
+     * @param window коэффициенты окна длиной count или null если без окна
+     */
+    void transform(double[] samples, int from, int count, double[] window) {
+        Plan p = getPlan(count);
+        size = count;
+        if (re.length < count) {
+            re = new double[count];
+            im = new double[count];
+        }
+        if (workRe.length < p.fftSize) {
+            workRe = new double[p.fftSize];
+            workIm = new double[p.fftSize];
+        }
+        int m = p.fftSize;
+        if (!p.isBluestein()) {
+            if (window == null) {
+                System.arraycopy(samples, from, workRe, 0, count);
+            } else {
+                for (int j = 0; j < count; j++) {
+                    workRe[j] = samples[from + j] * window[j];
+                }
+            }
+            Arrays.fill(workIm, 0, m, 0);
+            fft(p, workRe, workIm);
+            System.arraycopy(workRe, 0, re, 0, count);
+            System.arraycopy(workIm, 0, im, 0, count);
+            return;
+        }
+        // a[j] = x[j] * chirp[j], дополненное нулями
+        for (int j = 0; j < count; j++) {
+            double x = window == null ? samples[from + j] : samples[from + j] * window[j];
+            workRe[j] = x * p.chirpRe[j];
+            workIm[j] = x * p.chirpIm[j];
+        }
+        Arrays.fill(workRe, count, m, 0);
+        Arrays.fill(workIm, count, m, 0);
+        // свёртка с ядром через БПФ
+        fft(p, workRe, workIm);
+        for (int j = 0; j < m; j++) {
+            double r = workRe[j] * p.kernelRe[j] - workIm[j] * p.kernelIm[j];
+            double i = workRe[j] * p.kernelIm[j] + workIm[j] * p.kernelRe[j];
+            // сопряжение для обратного преобразования прямым
+            workRe[j] = r;
+            workIm[j] = -i;
+        }
+        fft(p, workRe, workIm);
+        // X[k] = chirp[k] * conj(work[k]) / m
+        for (int k = 0; k < count; k++) {
+            double r = workRe[k] / m;
+            double i = -workIm[k] / m;
+            re[k] = r * p.chirpRe[k] - i * p.chirpIm[k];
+            im[k] = r * p.chirpIm[k] + i * p.chirpRe[k];
+        }
+    }
+
+    /**
+     * Возвращает длину последнего преобразования, она же количество
+     * элементов спектра
+     *
+     * @return количество элементов спектра
+     */
+    int getSize() {
+        return size;
+    }
+
+    /**
+     * Возвращает модуль элемента спектра
+     *
+     * @param bin номер элемента спектра
+     * @return модуль
+     */
+    double getMagnitude(int bin) {
+        return Math.hypot(re[bin], im[bin]);
+    }
+
+    /**
+     * Возвращает фазу элемента спектра относительно косинуса
+     *
+     * @param bin номер элемента спектра
+     * @return фаза, радиан
+     */
+    double getPhase(int bin) {
+        return Math.atan2(im[bin], re[bin]);
+    }
+
+    /**
+     * Возвращает действительную часть элемента спектра
+     *
+     * @param bin номер элемента спектра
+     * @return действительная часть
+     */
+    double getRe(int bin) {
+        return re[bin];
+    }
+
+    /**
+     * Возвращает мнимую часть элемента спектра
+     *
+     * @param bin номер элемента спектра
+     * @return мнимая часть
+     */
+    double getIm(int bin) {
+        return im[bin];
+    }
+
+}
@@ -0,0 +1,142 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Оконные функции для анализа спектра. Все окна из семейства косинусных сумм
+ * w(i) = a0 - a1 cos(2 pi i / N) + a2 cos(4 pi i / N) - ..., взятых в
+ * периодическом виде, поэтому при целом числе периодов сигнала в окне
+ * гармоника растекается ровно на (количество коэффициентов - 1) соседних
+ * элементов спектра и не задевает гармоники, отстоящие дальше.
+ * Коэффициенты окна для каждой длины вычисляются один раз.
+ *
+ * @author Vasily Monakhov
+ */
+enum SpectrumWindow {
+
+    /**
+     * Прямоугольное окно (без окна)
+     */
+    RECTANGULAR("Прямоугольное", 1),
+    /**
+     * Окно Ханна
+     */
+    HANN("Ханна", 0.5, 0.5),
+    /**
+     * Окно Хэмминга
+     */
+    HAMMING("Хэмминга", 0.54, 0.46),
+    /**
+     * Четырёхчленное окно Блэкмана-Харриса
+     */
+    BLACKMAN_HARRIS("Блэкмана-Харриса", 0.35875, 0.48829, 0.14128, 0.01168),
+    /**
+     * Окно с плоской вершиной, минимальная ошибка амплитуды
+     */
+    FLAT_TOP("С плоской вершиной", 0.21557895, 0.41663158, 0.277263158, 0.083578947, 0.006947368);
+
+    /**
+     * Название для отображения
+     */
+    private final String title;
+
+    /**
+     * Коэффициенты косинусной суммы
+     */
+    private final double[] terms;
+
+    /**
+     * Коэффициенты окна по длине, в порядке последнего обращения
+     */
+    private final Map<Integer, double[]> tables = new LinkedHashMap<Integer, double[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, double[]> eldest) {
+            return size() > Const.SPECTRUM_PLAN_CACHE_SIZE;
+        }
+    };
+
+    /**
+     * Создаёт окно
+     *
+     * @param title название
+     * @param terms коэффициенты косинусной суммы
+     */
+    private SpectrumWindow(String title, double... terms) {
+        this.title = title;
+        this.terms = terms;
+    }
+
+    /**
+     * Возвращает название окна для отображения
+     *
+     * @return название
+     */
+    String getTitle() {
+        return title;
+    }
+
+    /**
+     * Возвращает, на сколько элементов спектра в каждую сторону растекается
+     * гармоника при целом числе периодов в окне
+     *
+     * @return ширина половины главного лепестка в элементах спектра
+     */
+    int getLeakage() {
+        return terms.length - 1;
+    }
+
+    /**
+     * Возвращает когерентное усиление окна - среднее значение коэффициентов.
+     * На него нужно поделить модуль спектра, чтобы получить амплитуду как
+     * без окна.
+     *
+     * @return когерентное усиление
+     */
+    double getCoherentGain() {
+        return terms[0];
+    }
+
+    /**
+     * Возвращает коэффициенты окна заданной длины. Массив общий, изменять его
+     * нельзя.
+     *
+     * @param size длина окна
+     * @return коэффициенты окна
+     */
+    double[] getCoefficients(int size) {
+        Integer key = size;
+        synchronized (tables) {
+            double[] w = tables.get(key);
+            if (w == null) {
+                w = new double[size];
+                for (int i = 0; i < size; i++) {
+                    double sum = 0;
+                    for (int k = 0; k < terms.length; k++) {
+                        double t = terms[k] * Math.cos(2 * Math.PI * k * i / size);
+                        sum += (k % 2 == 0) ? t : -t;
+                    }
+                    w[i] = sum;
+                }
+                tables.put(key, w);
+            }
+            return w;
+        }
+    }
+
+    /**
+     * Находит окно по названию
+     *
+     * @param title название
+     * @return окно или null если не найдено
+     */
+    static SpectrumWindow byTitle(String title) {
+        for (SpectrumWindow w : values()) {
+            if (w.title.equals(title)) {
+                return w;
+            }
+        }
+        return null;
+    }
+
+}
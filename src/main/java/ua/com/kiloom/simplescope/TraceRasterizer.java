@@ -0,0 +1,168 @@
+package ua.com.kiloom.simplescope;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+/**
+ * Программная отрисовка луча прямо в пиксели изображения, без Graphics2D.
+ * Широкие сглаженные линии Java2D на программном конвейере (без ускорения,
+ * удалённый X) - самая дорогая часть отрисовки графика, а луч осциллографа
+ * устроен просто: абсциссы вершин не убывают. Поэтому луч рисуется
+ * вертикальными отрезками по столбцам: для каждого столбца вычисляется,
+ * какой диапазон ординат занимает в нём ломаная, диапазон расширяется на
+ * половину толщины по вертикали и на соседние столбцы по горизонтали, и
+ * закрашивается одним проходом. Частично покрытые крайние пиксели столбца
+ * смешиваются с фоном пропорционально покрытию (сглаживание).
+ *
+ * Рисовать можно только в изображения с пикселями int RGB или ARGB, для
+ * остальных {@link #draw} возвращает false и нужно рисовать через
+ * Graphics2D. Рабочие массивы переиспользуются. Экземпляр не
+ * потокобезопасен.
+ *
+ * @author Vasily Monakhov
+ */
+class TraceRasterizer {
+
+    /**
+     * Верх ломаной по столбцам, до расширения
+     */
+    private double[] lineTop = new double[0];
+
+    /**
+     * Низ ломаной по столбцам, до расширения
+     */
+    private double[] lineBottom = new double[0];
+
+    /**
+     * Можно ли рисовать в изображение напрямую
+     *
+     * @param image изображение
+     * @return true если пиксели изображения - int RGB или ARGB
+     */
+    static boolean isSupported(BufferedImage image) {
+        int type = image.getType();
+        return (type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                && image.getRaster().getDataBuffer() instanceof DataBufferInt
+                && image.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel;
+    }
+
+    /**
+     * Нарисовать ломаную с неубывающими абсциссами
+     *
+     * @param image изображение
+     * @param xs абсциссы вершин, не убывают
+     * @param ys ординаты вершин
+     * @param count количество вершин
+     * @param rgb цвет луча
+     * @param thickness толщина луча, пикселей
+     * @return false если изображение не поддерживается и ничего не нарисовано
+     */
+    boolean draw(BufferedImage image, int[] xs, int[] ys, int count, int rgb, int thickness) {
+        if (!isSupported(image)) {
+            return false;
+        }
+        if (count == 0) {
+            return true;
+        }
+        WritableRaster raster = image.getRaster();
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+        int[] pixels = buffer.getData();
+        int stride = ((SinglePixelPackedSampleModel) raster.getSampleModel()).getScanlineStride();
+        int offset = buffer.getOffset();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int first = xs[0];
+        int columns = xs[count - 1] - first + 1;
+        if (lineTop.length < columns) {
+            lineTop = new double[columns];
+            lineBottom = new double[columns];
+        }
+        for (int c = 0; c < columns; c++) {
+            lineTop[c] = Double.MAX_VALUE;
+            lineBottom[c] = -Double.MAX_VALUE;
+        }
+        // диапазон ординат ломаной в каждом столбце
+        addPoint(0, ys[0]);
+        for (int i = 1; i < count; i++) {
+            int x0 = xs[i - 1];
+            int x1 = xs[i];
+            int y0 = ys[i - 1];
+            int y1 = ys[i];
+            if (x0 == x1) {
+                addPoint(x0 - first, y1);
+                continue;
+            }
+            double slope = (double) (y1 - y0) / (x1 - x0);
+            for (int x = x0; x <= x1; x++) {
+                // часть отрезка внутри столбца, от x - 0.5 до x + 0.5
+                double left = Math.max(x0, x - 0.5);
+                double right = Math.min(x1, x + 0.5);
+                addPoint(x - first, y0 + slope * (left - x0));
+                addPoint(x - first, y0 + slope * (right - x0));
+            }
+        }
+        int radius = (thickness - 1) / 2;
+        double half = thickness / 2.0;
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        int solid = 0xFF000000 | rgb;
+        int from = Math.max(0, first - radius);
+        int to = Math.min(width - 1, first + columns - 1 + radius);
+        for (int x = from; x <= to; x++) {
+            // объединить диапазоны соседних столбцов в пределах толщины
+            double top = Double.MAX_VALUE;
+            double bottom = -Double.MAX_VALUE;
+            int cFrom = Math.max(0, x - first - radius);
+            int cTo = Math.min(columns - 1, x - first + radius);
+            for (int c = cFrom; c <= cTo; c++) {
+                top = Math.min(top, lineTop[c]);
+                bottom = Math.max(bottom, lineBottom[c]);
+            }
+            if (top > bottom) {
+                continue;
+            }
+            // края полосы; пиксель y покрывает ординаты от y - 0.5 до y + 0.5
+            top -= half;
+            bottom += half;
+            int yFrom = Math.max(0, (int) Math.floor(top + 0.5));
+            int yTo = Math.min(height - 1, (int) Math.ceil(bottom - 0.5));
+            int index = offset + yFrom * stride + x;
+            for (int y = yFrom; y <= yTo; y++, index += stride) {
+                double coverage = Math.min(y + 0.5, bottom) - Math.max(y - 0.5, top);
+                if (coverage >= 1) {
+                    pixels[index] = solid;
+                } else if (coverage > 0) {
+                    int a = (int) (coverage * 256);
+                    int p = pixels[index];
+                    int pr = (p >> 16) & 0xFF;
+                    int pg = (p >> 8) & 0xFF;
+                    int pb = p & 0xFF;
+                    pr += ((r - pr) * a) >> 8;
+                    pg += ((g - pg) * a) >> 8;
+                    pb += ((b - pb) * a) >> 8;
+                    pixels[index] = 0xFF000000 | (pr << 16) | (pg << 8) | pb;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Учесть точку ломаной в диапазоне столбца
+     *
+     * @param column номер столбца от первой вершины
+     * @param y ордината
+     */
+    private void addPoint(int column, double y) {
+        if (y < lineTop[column]) {
+            lineTop[column] = y;
+        }
+        if (y > lineBottom[column]) {
+            lineBottom[column] = y;
+        }
+    }
+
+}
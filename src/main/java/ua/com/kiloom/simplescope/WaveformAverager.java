@@ -0,0 +1,119 @@
+package ua.com.kiloom.simplescope;
+
+/**
+ * Скользящее усреднение последних N кадров. Для каждого отсчёта хранится
+ * сумма значений АЦП последних N кадров, сами кадры хранятся в кольце. Когда
+ * кольцо заполнено, самый старый кадр вычитается из суммы, поэтому стоимость
+ * обработки кадра не зависит от N. При смене эпохи настроек (предел,
+ * развёртка, вход, синхронизация) накопленное сбрасывается: кадры с разными
+ * настройками усреднять нельзя.
+ *
+ * Экземпляр не потокобезопасен, им пользуется только поток обработки данных
+ * устройства.
+ *
+ * @author Vasily Monakhov
+ */
+class WaveformAverager {
+
+    /**
+     * Суммы значений по отсчётам
+     */
+    private final long[] sums = new long[Const.ADC_DATA_BLOCK_SIZE];
+
+    /**
+     * Кольцо последних кадров
+     */
+    private int[][] ring = new int[0][];
+
+    /**
+     * Индекс, куда будет записан следующий кадр
+     */
+    private int head;
+
+    /**
+     * Количество накопленных кадров
+     */
+    private int count;
+
+    /**
+     * Эпоха настроек накопленных кадров
+     */
+    private long epoch = -1;
+
+    /**
+     * Задать количество усредняемых кадров. При изменении накопленное
+     * сбрасывается.
+     *
+     * @param frames количество кадров
+     */
+    void setFrames(int frames) {
+        if (frames != ring.length) {
+            ring = new int[frames][Const.ADC_DATA_BLOCK_SIZE];
+            reset();
+        }
+    }
+
+    /**
+     * Возвращает количество усредняемых кадров
+     *
+     * @return количество кадров
+     */
+    int getFrames() {
+        return ring.length;
+    }
+
+    /**
+     * Возвращает количество накопленных кадров
+     *
+     * @return количество накопленных кадров, не больше {@link #getFrames()}
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * Сбросить накопленное
+     */
+    void reset() {
+        head = 0;
+        count = 0;
+        epoch = -1;
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = 0;
+        }
+    }
+
+    /**
+     * Добавить кадр и заменить его значения средними по последним кадрам
+     *
+     * @param data значения АЦП кадра, заменяются средними
+     * @param epoch эпоха настроек, с которыми получен кадр
+     */
+    void add(int[] data, long epoch) {
+        if (epoch != this.epoch) {
+            reset();
+            this.epoch = epoch;
+        }
+        int[] slot = ring[head];
+        boolean full = count == ring.length;
+        if (!full) {
+            count++;
+        }
+        for (int i = 0; i < Const.ADC_DATA_BLOCK_SIZE; i++) {
+            int value = data[i];
+            long sum = sums[i] + value;
+            if (full) {
+                sum -= slot[i];
+            }
+            sums[i] = sum;
+            slot[i] = value;
+            // округление к ближайшему
+            data[i] = (int) ((sum + count / 2) / count);
+        }
+        head++;
+        if (head == ring.length) {
+            head = 0;
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package ua.com.kiloom.simplescope;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест потокового разборщика байтов от устройства
+ *
+ * @author Vasily Monakhov
+ */
+public class AdcStreamParserTest {
+
+    /**
+     * Сформировать поток байтов из заданного количества отсчётов
+     */
+    private byte[] stream(int words) {
+        byte[] data = new byte[words * 2];
+        for (int i = 0; i < words; i++) {
+            int value = (i * 7 + 0x100) % Const.ADC_RANGE;
+            data[i * 2] = (byte) (value >> 8);
+            data[i * 2 + 1] = (byte) value;
+        }
+        return data;
+    }
+
+    /**
+     * Значение отсчёта с заданным номером
+     */
+    private int value(int i) {
+        return (i * 7 + 0x100) % Const.ADC_RANGE;
+    }
+
+    /**
+     * Разобрать поток, порциями по chunk байтов, вернуть количество кадров
+     */
+    private int parse(AdcStreamParser parser, byte[] data, int chunk, int[] firstFrame) {
+        int frames = 0;
+        int pos = 0;
+        while (pos < data.length) {
+            int len = Math.min(chunk, data.length - pos);
+            int end = pos + len;
+            while (pos < end) {
+                pos += parser.feed(data, pos, end - pos);
+                if (parser.isFrameReady()) {
+                    if (frames == 0 && firstFrame != null) {
+                        System.arraycopy(parser.getFrame(), 0, firstFrame, 0, firstFrame.length);
+                    }
+                    frames++;
+                    parser.nextFrame();
+                }
+            }
+        }
+        return frames;
+    }
+
+    @Test
+    public void testCleanStream() {
+        AdcStreamParser parser = new AdcStreamParser();
+        int[] frame = new int[Const.ADC_DATA_BLOCK_SIZE];
+        byte[] data = stream(Const.ADC_DATA_BLOCK_SIZE * 3);
+        assertEquals(3, parse(parser, data, 333, frame));
+        for (int i = 0; i < frame.length; i++) {
+            assertEquals(value(i), frame[i]);
+        }
+        assertEquals(0, parser.getResyncs());
+        assertEquals(0, parser.getDiscardedBytes());
+    }
+
+    @Test
+    public void testLostByte() {
+        AdcStreamParser parser = new AdcStreamParser();
+        byte[] clean = stream(Const.ADC_DATA_BLOCK_SIZE * 2);
+        // потерять младший байт отсчёта 100, после чего старшие и младшие
+        // байты меняются местами
+        byte[] data = new byte[clean.length - 1];
+        int lost = 201;
+        System.arraycopy(clean, 0, data, 0, lost);
+        System.arraycopy(clean, lost + 1, data, lost, clean.length - lost - 1);
+        int frames = parse(parser, data, 1000, null);
+        assertEquals(1, parser.getResyncs());
+        // потеряно не больше нескольких отсчётов, а не весь блок
+        assertTrue(parser.getDiscardedBytes() > 0);
+        assertTrue(parser.getDiscardedBytes() <= 2 * (AdcStreamParser.LOCK_WORDS + 2));
+        assertEquals(1, frames);
+    }
+
+    @Test
+    public void testStartMidWord() {
+        AdcStreamParser parser = new AdcStreamParser();
+        byte[] clean = stream(Const.ADC_DATA_BLOCK_SIZE * 2 + 2 * AdcStreamParser.LOCK_WORDS);
+        // поток начался с младшего байта первого отсчёта
+        byte[] data = new byte[clean.length - 1];
+        System.arraycopy(clean, 1, data, 0, data.length);
+        int[] frame = new int[Const.ADC_DATA_BLOCK_SIZE];
+        assertEquals(2, parse(parser, data, 1000, frame));
+        // кадр начинается с одного из первых отсчётов и не содержит слов,
+        // собранных из разных отсчётов
+        int first = 1;
+        while (value(first) != frame[0]) {
+            first++;
+        }
+        assertTrue(first <= AdcStreamParser.LOCK_WORDS + 1);
+        for (int i = 0; i < frame.length; i++) {
+            assertEquals(value(first + i), frame[i]);
+        }
+        assertEquals(0, parser.getResyncs());
+        assertEquals(0, parser.getDiscardedBytes());
+    }
+
+    @Test
+    public void testShift() {
+        AdcStreamParser parser = new AdcStreamParser();
+        int[] frame = new int[Const.ADC_DATA_BLOCK_SIZE];
+        parser.shift(10);
+        parse(parser, stream(Const.ADC_DATA_BLOCK_SIZE * 2), 1000, frame);
+        assertEquals(value(10), frame[0]);
+
+        parser.reset();
+        parser.shift(-100);
+        parse(parser, stream(Const.ADC_DATA_BLOCK_SIZE), 1000, frame);
+        assertEquals(value(399), frame[399]);
+        assertEquals(value(399), frame[Const.ADC_DATA_BLOCK_SIZE - 1]);
+    }
+
+}
@@ -0,0 +1,86 @@
+package ua.com.kiloom.simplescope;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест кольца блоков
+ *
+ * @author Vasily Monakhov
+ */
+public class BlockRingTest {
+
+    /**
+     * Заполнить блок и поместить в кольцо
+     */
+    private boolean put(BlockRing ring, int value) {
+        BlockRing.Block b = ring.acquire();
+        if (b == null) {
+            return false;
+        }
+        b.data[0] = (byte) value;
+        b.length = 1;
+        ring.publish(b);
+        return true;
+    }
+
+    /**
+     * Забрать блок из кольца и вернуть его значение
+     */
+    private int poll(BlockRing ring) {
+        BlockRing.Block b = ring.poll();
+        assertNotNull(b);
+        int value = b.data[0];
+        ring.release(b);
+        return value;
+    }
+
+    @Test
+    public void testFifo() {
+        BlockRing ring = new BlockRing(4, 10, BlockRing.OverflowPolicy.DROP_OLDEST);
+        assertEquals(4, ring.getCapacity());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(put(ring, i));
+            assertTrue(put(ring, i + 1));
+            assertEquals(i, poll(ring));
+            assertEquals(i + 1, poll(ring));
+        }
+        assertEquals(0, ring.size());
+        assertNull(ring.poll());
+        assertEquals(0, ring.getDropped());
+    }
+
+    @Test
+    public void testDropOldest() {
+        BlockRing ring = new BlockRing(4, 10, BlockRing.OverflowPolicy.DROP_OLDEST);
+        // потребитель держит один блок
+        assertTrue(put(ring, 100));
+        BlockRing.Block held = ring.poll();
+        for (int i = 0; i < 10; i++) {
+            assertTrue(put(ring, i));
+        }
+        assertEquals(4, ring.size());
+        assertEquals(6, ring.getDropped());
+        assertEquals(100, held.data[0]);
+        ring.release(held);
+        for (int i = 6; i < 10; i++) {
+            assertEquals(i, poll(ring));
+        }
+    }
+
+    @Test
+    public void testDropNewest() {
+        BlockRing ring = new BlockRing(4, 10, BlockRing.OverflowPolicy.DROP_NEWEST);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i < 4, put(ring, i));
+        }
+        assertEquals(4, ring.size());
+        assertEquals(6, ring.getDropped());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, poll(ring));
+        }
+        ring.clear();
+        assertEquals(0, ring.size());
+    }
+
+}
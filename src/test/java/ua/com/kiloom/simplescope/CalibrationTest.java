@@ -0,0 +1,45 @@
+package ua.com.kiloom.simplescope;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест калибровки устройства
+ *
+ * @author Vasily Monakhov
+ */
+public class CalibrationTest {
+
+    /**
+     * Калибровка идеального устройства совпадает с расчётом по пределу
+     */
+    @Test
+    public void testIdentity() {
+        for (int range = 0; range < Const.VOLTAGES.length; range++) {
+            double[] table = Calibration.IDENTITY.getTable(range);
+            for (int value = 0; value < Const.ADC_RANGE; value += 7) {
+                double v = ((value - Const.ADC_MIDDLE) * Const.VOLTAGES[range]) / Const.ADC_MIDDLE;
+                assertEquals(v, table[value], 1e-12);
+            }
+        }
+    }
+
+    /**
+     * Поправки из файла применяются только к своему пределу
+     */
+    @Test
+    public void testLoad() throws Exception {
+        String text = "range.7.gain=1.1\nrange.7.offset=-0.2\nrange.7.square=0.01\n";
+        Calibration c = Calibration.load(new ByteArrayInputStream(text.getBytes(StandardCharsets.ISO_8859_1)));
+        // 3072 соответствует половине предела 10 В
+        assertEquals(-0.2 + 1.1 * 5 + 0.01 * 25, c.getTable(7)[3072], 1e-12);
+        assertEquals(-0.2, c.getTable(7)[Const.ADC_MIDDLE], 1e-12);
+        assertEquals(Calibration.IDENTITY.getTable(6)[3072], c.getTable(6)[3072], 1e-12);
+        Result r = new Result(7, 0);
+        r.setCalibration(c);
+        assertEquals(-0.2 + 1.1 * 5 + 0.01 * 25, r.adcValueToVoltage(3072), 1e-12);
+    }
+
+}
@@ -0,0 +1,48 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест очереди команд устройству
+ *
+ * @author Vasily Monakhov
+ */
+public class CommandQueueTest {
+
+    /**
+     * Серия команд одного типа сводится к последней, команды разных типов не
+     * теряются, пауза между командами выдерживается
+     */
+    @Test(timeout = 10000)
+    public void testCoalescing() throws Exception {
+        final List<Integer> values = Collections.synchronizedList(new ArrayList<Integer>());
+        final List<Long> times = Collections.synchronizedList(new ArrayList<Long>());
+        CommandQueue queue = new CommandQueue(new CommandQueue.Sender() {
+            @Override
+            public void send(CommandQueue.Type type, int value, byte[] command) {
+                values.add(value);
+                times.add(System.nanoTime());
+            }
+        }, 20);
+        queue.start("test");
+        for (int i = 0; i < 100; i++) {
+            queue.submit(CommandQueue.Type.ZERO_LEVEL, i, (byte) 0xDA, (byte) 0xDB, (byte) i);
+        }
+        queue.submit(CommandQueue.Type.VOLTAGE, 1000, (byte) 0xAA, (byte) 0xAB, (byte) 50);
+        assertTrue(queue.awaitIdle(5000));
+        assertTrue(values.contains(99));
+        assertTrue(values.contains(1000));
+        assertTrue(values.size() < 10);
+        assertEquals(values.size(), queue.getSent());
+        assertEquals(101 - values.size(), queue.getCoalesced());
+        for (int i = 1; i < times.size(); i++) {
+            assertTrue(times.get(i) - times.get(i - 1) >= 19000000L);
+        }
+        queue.stop();
+    }
+
+}
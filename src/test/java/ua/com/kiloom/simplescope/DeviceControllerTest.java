@@ -0,0 +1,232 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import jssc.SerialPortException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест контроллера устройства на программной модели устройства
+ *
+ * @author Vasily Monakhov
+ */
+public class DeviceControllerTest {
+
+    /**
+     * Данные от модели устройства проходят всю цепочку обработки, а команды
+     * доходят до модели
+     */
+    @Test(timeout = 10000)
+    public void testSimulatedDevice() throws Exception {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        DeviceController dc = new DeviceController(new Runnable() {
+            @Override
+            public void run() {
+                stopped.countDown();
+            }
+        });
+        SimulatedDevice device = new SimulatedDevice(200);
+        dc.open(device);
+        assertTrue(dc.isOpen());
+        dc.switchVoltage(7);
+        dc.switchTime(6);
+        dc.switchInputToDc();
+        dc.switchSyncToAuto(true);
+        assertTrue(dc.flushCommands(5000));
+        assertEquals(7, device.getVoltageIndex());
+        assertEquals(6, device.getTimeIndex());
+        Result r = null;
+        for (int i = 0; i < 20; i++) {
+            r = dc.getADCResult();
+            assertNotNull(r);
+        }
+        assertEquals(Const.VOLTAGES[7], r.getVoltage(), 0);
+        assertTrue(r.getVMax() > 2d);
+        assertTrue(r.getVMin() < -1d);
+        dc.close();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertFalse(dc.isOpen());
+    }
+
+    /**
+     * Медленный потребитель получает самый свежий результат, более старые
+     * пропускаются и возвращаются в пул
+     */
+    @Test(timeout = 10000)
+    public void testLatestResult() throws Exception {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        DeviceController dc = new DeviceController(new Runnable() {
+            @Override
+            public void run() {
+                stopped.countDown();
+            }
+        });
+        dc.open(new SimulatedDevice(200));
+        for (int i = 0; i < 5; i++) {
+            // дать устройству наполнить очередь
+            Thread.sleep(100);
+            dc.releaseResult(dc.getLatestADCResult());
+        }
+        assertTrue(dc.getSkippedResults() > 0);
+        assertTrue(dc.getAllocatedResults() <= Const.RESULT_POOL_SIZE);
+        dc.close();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Неизменившиеся настройки повторно не отправляются, каждая команда
+     * уходит одной записью, после переоткрытия настройки отправляются заново
+     */
+    @Test(timeout = 10000)
+    public void testDifferentialCommands() throws Exception {
+        final CountDownLatch stopped = new CountDownLatch(2);
+        DeviceController dc = new DeviceController(new Runnable() {
+            @Override
+            public void run() {
+                stopped.countDown();
+            }
+        });
+        final int[] writes = new int[1];
+        SimulatedDevice device = new SimulatedDevice(200) {
+            @Override
+            public void writeBytes(byte[] bytes) throws SerialPortException {
+                writes[0]++;
+                super.writeBytes(bytes);
+            }
+        };
+        dc.open(device);
+        for (int i = 0; i < 3; i++) {
+            dc.switchSyncToLevel(100, true);
+            dc.switchTime(6);
+            dc.switchVoltage(7);
+            dc.setZeroLevel(125);
+            dc.switchInputToAc();
+        }
+        assertTrue(dc.flushCommands(5000));
+        assertEquals(5, writes[0]);
+        assertEquals(7, device.getVoltageIndex());
+        dc.switchVoltage(8);
+        dc.switchSyncToLevel(101, true);
+        assertTrue(dc.flushCommands(5000));
+        assertEquals(7, writes[0]);
+        dc.close();
+        while (stopped.getCount() == 2) {
+            Thread.sleep(10);
+        }
+        dc.open(device);
+        dc.switchVoltage(8);
+        assertTrue(dc.flushCommands(5000));
+        assertEquals(8, writes[0]);
+        dc.close();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Зависшая связь обнаруживается сторожем, устройство переподключается и
+     * получает последнюю известную конфигурацию
+     */
+    @Test(timeout = 20000)
+    public void testReconnect() throws Exception {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        DeviceController dc = new DeviceController(new Runnable() {
+            @Override
+            public void run() {
+                stopped.countDown();
+            }
+        });
+        final int[] writes = new int[1];
+        SimulatedDevice device = new SimulatedDevice(200) {
+            @Override
+            public void writeBytes(byte[] bytes) throws SerialPortException {
+                writes[0]++;
+                super.writeBytes(bytes);
+            }
+        };
+        dc.open(device);
+        dc.switchVoltage(7);
+        dc.switchTime(6);
+        assertTrue(dc.flushCommands(5000));
+        assertEquals(2, writes[0]);
+        device.setStalled(true);
+        while (dc.getReconnects() == 0) {
+            Thread.sleep(50);
+        }
+        device.setStalled(false);
+        assertTrue(dc.flushCommands(5000));
+        assertTrue(writes[0] >= 4);
+        assertEquals(7, device.getVoltageIndex());
+        assertTrue(dc.getLostBlocks() > 0);
+        assertTrue(dc.isOpen());
+        assertNotNull(dc.getADCResult());
+        dc.close();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Пока одно устройство отключено и ждёт появления порта, другое
+     * устройство переподключается: ожидание не занимает общий поток сторожа
+     */
+    @Test(timeout = 30000)
+    public void testReconnectWhileOtherUnplugged() throws Exception {
+        final CountDownLatch stopped = new CountDownLatch(2);
+        Runnable onStop = new Runnable() {
+            @Override
+            public void run() {
+                stopped.countDown();
+            }
+        };
+        final boolean[] present = {true};
+        SimulatedDevice unplugged = new SimulatedDevice(200) {
+            @Override
+            public boolean isPresent() {
+                return present[0];
+            }
+        };
+        SimulatedDevice stalled = new SimulatedDevice(200);
+        DeviceController first = new DeviceController(onStop);
+        DeviceController second = new DeviceController(onStop);
+        first.open(unplugged);
+        second.open(stalled);
+        present[0] = false;
+        unplugged.setStalled(true);
+        // сторож закрыл порт первого устройства и ждёт его появления
+        while (first.isOpen()) {
+            Thread.sleep(50);
+        }
+        stalled.setStalled(true);
+        while (second.getReconnects() == 0) {
+            Thread.sleep(50);
+        }
+        stalled.setStalled(false);
+        assertTrue(second.isOpen());
+        assertNotNull(second.getADCResult());
+        assertEquals(0, first.getReconnects());
+        unplugged.setStalled(false);
+        present[0] = true;
+        while (first.getReconnects() == 0) {
+            Thread.sleep(50);
+        }
+        assertTrue(first.isOpen());
+        first.close();
+        second.close();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Модель устройства не принимает нулевую и отрицательную скорость
+     */
+    @Test
+    public void testSimulatorRate() {
+        for (double rate : new double[]{0, -10, Double.NaN, Double.POSITIVE_INFINITY}) {
+            try {
+                new SimulatedDevice(rate);
+                fail("Скорость " + rate + " принята");
+            } catch (IllegalArgumentException ex) {
+                // ожидаемо
+            }
+        }
+        assertEquals(Const.BYTES_BLOCK_SIZE, new SimulatedDevice(1).getBytesPerSecond());
+    }
+
+}
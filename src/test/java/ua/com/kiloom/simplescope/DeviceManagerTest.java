@@ -0,0 +1,87 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import jssc.SerialPortException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест работы нескольких устройств на общем пуле потоков
+ *
+ * @author Vasily Monakhov
+ */
+public class DeviceManagerTest {
+
+    /**
+     * Два устройства обрабатываются одним потоком, оба выдают данные и
+     * результаты помечены идентификатором своего устройства
+     */
+    @Test(timeout = 10000)
+    public void testSharedExecutor() throws Exception {
+        DeviceManager manager = new DeviceManager(1);
+        final CountDownLatch stopped = new CountDownLatch(2);
+        Runnable onStop = new Runnable() {
+            @Override
+            public void run() {
+                stopped.countDown();
+            }
+        };
+        String firstId = SimulatedDevice.PORT_NAME + "1";
+        String secondId = SimulatedDevice.PORT_NAME + "2";
+        DeviceController first = manager.create(onStop);
+        DeviceController second = manager.create(onStop);
+        manager.open(first, firstId);
+        manager.open(second, secondId);
+        assertSame(first, manager.get(firstId));
+        assertSame(second, manager.get(secondId));
+        for (int i = 0; i < 10; i++) {
+            Result r = first.getADCResult();
+            assertEquals(firstId, r.getDeviceId());
+            first.releaseResult(r);
+            r = second.getADCResult();
+            assertEquals(secondId, r.getDeviceId());
+            second.releaseResult(r);
+        }
+        manager.closeAll();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertFalse(first.isOpen());
+        assertFalse(second.isOpen());
+    }
+
+    /**
+     * Модель устройства с заданным именем выдаёт его как идентификатор
+     */
+    @Test
+    public void testSimulatorName() {
+        assertEquals("SIM1", new SimulatedDevice("SIM1", 200).getName());
+        assertEquals(SimulatedDevice.PORT_NAME, new SimulatedDevice(200).getName());
+    }
+
+    /**
+     * Один порт нельзя открыть дважды
+     */
+    @Test(timeout = 10000)
+    public void testPortBusy() throws Exception {
+        DeviceManager manager = new DeviceManager(1);
+        final CountDownLatch stopped = new CountDownLatch(1);
+        DeviceController dc = manager.create(new Runnable() {
+            @Override
+            public void run() {
+                stopped.countDown();
+            }
+        });
+        manager.open(dc, SimulatedDevice.PORT_NAME);
+        assertSame(dc, manager.get(SimulatedDevice.PORT_NAME));
+        try {
+            manager.open(manager.create(null), SimulatedDevice.PORT_NAME);
+            fail();
+        } catch (SerialPortException ex) {
+            assertEquals(SerialPortException.TYPE_PORT_BUSY, ex.getExceptionType());
+        }
+        manager.closeAll();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+        assertNull(manager.get(SimulatedDevice.PORT_NAME));
+    }
+
+}
@@ -0,0 +1,81 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест огибающей сигнала
+ *
+ * @author Vasily Monakhov
+ */
+public class EnvelopeTrackerTest {
+
+    /**
+     * Создать кадр с одинаковыми значениями
+     *
+     * @param value значение АЦП
+     * @return кадр
+     */
+    private int[] frame(int value) {
+        int[] data = new int[Const.ADC_DATA_BLOCK_SIZE];
+        Arrays.fill(data, value);
+        return data;
+    }
+
+    /**
+     * Одиночный выброс остаётся в огибающей
+     */
+    @Test
+    public void testHold() {
+        EnvelopeTracker e = new EnvelopeTracker();
+        e.add(frame(2000), 1, 0);
+        int[] glitch = frame(2000);
+        glitch[100] = 4000;
+        glitch[200] = 10;
+        e.add(glitch, 1, 10);
+        e.add(frame(2000), 1, 20);
+        assertEquals(3, e.getCount());
+        assertEquals(4000, e.getMax()[100]);
+        assertEquals(2000, e.getMin()[100]);
+        assertEquals(10, e.getMin()[200]);
+        assertEquals(2000, e.getMax()[0]);
+        assertEquals(2000, e.getMin()[0]);
+    }
+
+    /**
+     * Затухание возвращает границы к сигналу, но не дальше него
+     */
+    @Test
+    public void testDecay() {
+        EnvelopeTracker e = new EnvelopeTracker();
+        e.setDecay(100);
+        e.add(frame(3000), 1, 0);
+        e.add(frame(2000), 1, 0);
+        assertEquals(2900, e.getMax()[0]);
+        assertEquals(2000, e.getMin()[0]);
+        for (int i = 0; i < 20; i++) {
+            e.add(frame(2000), 1, 0);
+        }
+        assertEquals(2000, e.getMax()[0]);
+    }
+
+    /**
+     * Сброс по интервалу и по смене настроек
+     */
+    @Test
+    public void testReset() {
+        EnvelopeTracker e = new EnvelopeTracker();
+        e.setResetInterval(1000);
+        e.add(frame(3000), 1, 0);
+        e.add(frame(1000), 1, 500);
+        assertEquals(3000, e.getMax()[0]);
+        e.add(frame(2000), 1, 1000);
+        assertEquals(1, e.getCount());
+        assertEquals(2000, e.getMax()[0]);
+        e.add(frame(100), 2, 1100);
+        assertEquals(1, e.getCount());
+        assertEquals(100, e.getMax()[0]);
+    }
+
+}
@@ -0,0 +1,81 @@
+package ua.com.kiloom.simplescope;
+
+import java.awt.image.BufferedImage;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест пула изображений
+ *
+ * @author Vasily Monakhov
+ */
+public class ImagePoolTest {
+
+    /**
+     * Пул, создающий изображения без экрана
+     */
+    private static class TestPool extends ImagePool {
+
+        /**
+         * Создаёт пул
+         *
+         * @param maxPixels наибольшее количество пикселей свободных изображений
+         */
+        TestPool(long maxPixels) {
+            super(maxPixels);
+        }
+
+        @Override
+        BufferedImage createImage(int width, int height) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+    }
+
+    /**
+     * Изображения разных назначений не вытесняют друг друга, смена размера
+     * удаляет прежние изображения назначения
+     */
+    @Test
+    public void testPurposes() {
+        ImagePool pool = new TestPool(1000000);
+        BufferedImage scope = pool.acquire(100, 50, ImagePool.Purpose.SCOPE);
+        BufferedImage harm = pool.acquire(80, 40, ImagePool.Purpose.HARMONICS);
+        pool.release(scope, ImagePool.Purpose.SCOPE);
+        pool.release(harm, ImagePool.Purpose.HARMONICS);
+        assertSame(scope, pool.acquire(100, 50, ImagePool.Purpose.SCOPE));
+        assertSame(harm, pool.acquire(80, 40, ImagePool.Purpose.HARMONICS));
+        assertEquals(2, pool.getCreated());
+        assertEquals(2, pool.getReused());
+        pool.release(scope, ImagePool.Purpose.SCOPE);
+        pool.release(harm, ImagePool.Purpose.HARMONICS);
+        BufferedImage bigger = pool.acquire(120, 60, ImagePool.Purpose.SCOPE);
+        assertEquals(120, bigger.getWidth());
+        assertEquals(1, pool.getEvicted());
+        assertEquals(80 * 40, pool.getFreePixels());
+        assertSame(harm, pool.acquire(80, 40, ImagePool.Purpose.HARMONICS));
+    }
+
+    /**
+     * Суммарный размер свободных изображений ограничен, первыми удаляются
+     * давно не запрашивавшиеся
+     */
+    @Test
+    public void testPixelLimit() {
+        ImagePool pool = new TestPool(3 * 100);
+        BufferedImage a = pool.acquire(10, 10, ImagePool.Purpose.HARMONICS);
+        BufferedImage[] s = new BufferedImage[3];
+        for (int i = 0; i < s.length; i++) {
+            s[i] = pool.acquire(10, 10, ImagePool.Purpose.SCOPE);
+        }
+        pool.release(a, ImagePool.Purpose.HARMONICS);
+        for (BufferedImage image : s) {
+            pool.release(image, ImagePool.Purpose.SCOPE);
+        }
+        assertEquals(300, pool.getFreePixels());
+        assertEquals(1, pool.getEvicted());
+        // изображение гармоник удалено, как давно не запрашивавшееся
+        assertNotSame(a, pool.acquire(10, 10, ImagePool.Purpose.HARMONICS));
+        assertEquals(5, pool.getCreated());
+    }
+
+}
@@ -0,0 +1,83 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.Arrays;
+import jssc.SerialPort;
+import jssc.SerialPortException;
+import jssc.SerialPortTimeoutException;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест проверки связи с устройством
+ *
+ * @author Vasily Monakhov
+ */
+public class LinkSelfTestTest {
+
+    /**
+     * Параметры порта для отчёта
+     */
+    private static final LinkParameters LINK = new LinkParameters(Const.BAUD_RATE, SerialPort.DATABITS_8,
+            SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+
+    /**
+     * Симулятор даёт стабильную связь с ненулевой скоростью
+     */
+    @Test(timeout = 10000)
+    public void testMeasure() throws Exception {
+        LinkSelfTest.Measurement m = LinkSelfTest.measure(LINK, new SimulatedDevice(100), 500);
+        assertTrue(m.toString(), m.isStable());
+        assertTrue(m.blocksPerSecond > 0);
+    }
+
+    /**
+     * Связь стабильна, даже если после очистки буфера порта поток начался с
+     * середины слова
+     */
+    @Test(timeout = 10000)
+    public void testMeasureMidWord() throws Exception {
+        SimulatedDevice device = new SimulatedDevice(100) {
+
+            /**
+             * Байт, задержанный до следующего чтения. Сразу после очистки
+             * это младший байт слова, переданного до очистки.
+             */
+            private byte carry;
+
+            @Override
+            public void purge() throws SerialPortException {
+                super.purge();
+                carry = (byte) 0xA5;
+            }
+
+            @Override
+            public void readBytes(byte[] data, int count, int timeout) throws SerialPortException, SerialPortTimeoutException {
+                // поток сдвинут на один байт относительно границ слов
+                byte[] read = new byte[count];
+                super.readBytes(read, count, timeout);
+                data[0] = carry;
+                System.arraycopy(read, 0, data, 1, count - 1);
+                carry = read[count - 1];
+            }
+        };
+        LinkSelfTest.Measurement m = LinkSelfTest.measure(LINK, device, 500);
+        assertTrue(m.toString(), m.isStable());
+        assertTrue(m.blocksPerSecond > 0);
+    }
+
+    /**
+     * Выбирается самая быстрая из стабильных скоростей
+     */
+    @Test
+    public void testPickFastest() {
+        LinkSelfTest.Measurement slow = new LinkSelfTest.Measurement(LINK, 10, 0, 0, null);
+        LinkSelfTest.Measurement fast = new LinkSelfTest.Measurement(LINK.withBaudRate(460800), 40, 0, 0, null);
+        LinkSelfTest.Measurement broken = new LinkSelfTest.Measurement(LINK.withBaudRate(921600), 80, 3, 120, null);
+        LinkSelfTest.Measurement failed = new LinkSelfTest.Measurement(LINK.withBaudRate(230400), 0, 0, 0, "Port busy");
+        assertSame(fast, LinkSelfTest.pickFastest(Arrays.asList(slow, broken, fast, failed)));
+        assertNull(LinkSelfTest.pickFastest(Arrays.asList(broken, failed)));
+        assertEquals("115200 8N1", LINK.toString());
+        assertEquals(11520, LINK.getBytesPerSecond());
+    }
+
+}
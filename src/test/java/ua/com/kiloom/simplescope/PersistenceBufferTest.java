@@ -0,0 +1,58 @@
+package ua.com.kiloom.simplescope;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест послесвечения
+ *
+ * @author Vasily Monakhov
+ */
+public class PersistenceBufferTest {
+
+    /**
+     * Общая вершина ломаной считается один раз, отрезок без разрывов
+     */
+    @Test
+    public void testPolyline() {
+        PersistenceBuffer p = new PersistenceBuffer();
+        p.setSize(10, 10);
+        p.addPolyline(new int[]{0, 5, 9}, new int[]{0, 5, 5}, 3);
+        for (int i = 0; i <= 5; i++) {
+            assertEquals(PersistenceBuffer.HIT, p.getHits(i, i));
+        }
+        for (int x = 6; x <= 9; x++) {
+            assertEquals(PersistenceBuffer.HIT, p.getHits(x, 5));
+        }
+        assertEquals(0, p.getHits(0, 9));
+        // точки за пределами области отбрасываются
+        p.addPolyline(new int[]{-5, 20}, new int[]{9, 9}, 2);
+        assertEquals(PersistenceBuffer.HIT, p.getHits(0, 9));
+    }
+
+    /**
+     * Экспоненциальное и бесконечное затухание, насыщение счётчика
+     */
+    @Test
+    public void testDecay() {
+        PersistenceBuffer p = new PersistenceBuffer();
+        p.setSize(4, 4);
+        p.setDecay(50);
+        p.addPolyline(new int[]{1}, new int[]{1}, 1);
+        p.decay();
+        assertEquals(PersistenceBuffer.HIT / 2, p.getHits(1, 1));
+        p.setDecay(0);
+        p.decay();
+        assertEquals(PersistenceBuffer.HIT / 2, p.getHits(1, 1));
+        for (int i = 0; i < 1000; i++) {
+            p.addPolyline(new int[]{1}, new int[]{1}, 1);
+        }
+        assertEquals(PersistenceBuffer.MAX_HITS, p.getHits(1, 1));
+        int[] palette = ColorScheme.GREEN_MONO_SCHEME.getPersistencePalette();
+        assertEquals(palette[ColorScheme.PALETTE_SIZE - 1], p.render(palette).getRGB(1, 1));
+        assertEquals(palette[0], p.render(palette).getRGB(0, 0));
+        p.clear();
+        assertEquals(0, p.getHits(1, 1));
+    }
+
+}
@@ -0,0 +1,109 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест пула результатов
+ *
+ * @author Vasily Monakhov
+ */
+public class ResultPoolTest {
+
+    /**
+     * Возвращённый результат используется повторно с новыми параметрами, а
+     * повторный возврат запрещён
+     */
+    @Test
+    public void testReuse() {
+        ResultPool pool = new ResultPool(2);
+        Result r = pool.acquire(3, 4);
+        r.setDeviceId("A");
+        pool.release(r);
+        assertEquals(1, pool.size());
+        Result r2 = pool.acquire(5, 6);
+        assertSame(r, r2);
+        assertNull(r2.getDeviceId());
+        assertEquals(Const.VOLTAGES[5], r2.getVoltage(), 0);
+        assertEquals(Const.TIMES[6], r2.getTime(), 0);
+        assertEquals(1, pool.getAllocated());
+        assertEquals(1, pool.getReused());
+        pool.release(r2);
+        try {
+            pool.release(r2);
+            fail();
+        } catch (IllegalStateException ex) {
+            // так и должно быть
+        }
+    }
+
+    /**
+     * Результат с несколькими владельцами возвращается в пул только после
+     * возврата последним из них
+     */
+    @Test
+    public void testOwners() {
+        ResultPool pool = new ResultPool(2);
+        Result r = pool.acquire(1, 1);
+        pool.retain(r);
+        pool.release(r);
+        assertEquals(0, pool.size());
+        assertFalse(r.isPooled());
+        assertNotSame(r, pool.acquire(1, 1));
+        pool.release(r);
+        assertEquals(1, pool.size());
+        assertTrue(r.isPooled());
+        try {
+            pool.retain(r);
+            fail();
+        } catch (IllegalStateException ex) {
+            // так и должно быть
+        }
+        Result again = pool.acquire(2, 2);
+        assertSame(r, again);
+        pool.release(again);
+        assertEquals(1, pool.size());
+    }
+
+    /**
+     * Пул не хранит результатов больше своей ёмкости
+     */
+    @Test
+    public void testCapacity() {
+        ResultPool pool = new ResultPool(2);
+        Result[] rs = new Result[5];
+        for (int i = 0; i < rs.length; i++) {
+            rs[i] = pool.acquire(0, 0);
+        }
+        for (Result r : rs) {
+            pool.release(r);
+        }
+        assertEquals(2, pool.size());
+        assertEquals(5, pool.getAllocated());
+    }
+
+    /**
+     * Если потребитель возвращает результаты, после заполнения пула новые
+     * результаты не создаются
+     */
+    @Test(timeout = 10000)
+    public void testSteadyState() throws Exception {
+        final CountDownLatch stopped = new CountDownLatch(1);
+        DeviceController dc = new DeviceController(new Runnable() {
+            @Override
+            public void run() {
+                stopped.countDown();
+            }
+        });
+        dc.open(new SimulatedDevice(200));
+        for (int i = 0; i < 50; i++) {
+            dc.releaseResult(dc.getADCResult());
+        }
+        assertTrue(dc.getAllocatedResults() <= Const.RESULT_POOL_SIZE);
+        dc.close();
+        assertTrue(stopped.await(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -256,6 +256,71 @@ public class ResultTest {
         assertTrue(h[9] < -60d);
     }
 
+    /**
+     * Сигнал с периодом 50 отсчётов: основная гармоника в фазе синуса и 10%
+     * третьей гармоники в фазе косинуса
+     */
+    private byte[] makeCosineHarmonic() {
+        int[] adc = new int[Const.ADC_DATA_BLOCK_SIZE];
+        for (int i = 0; i < Const.ADC_DATA_BLOCK_SIZE; i++) {
+            adc[i] = Const.ADC_MIDDLE + (int) Math.round(1000 * Math.sin(2 * Math.PI * i / 50)
+                    + 100 * Math.cos(2 * Math.PI * 3 * i / 50));
+        }
+        return integersToBytes(adc);
+    }
+
+    /**
+     * Гармоника в фазе косинуса измеряется так же, как в фазе синуса, а окно
+     * уменьшает ошибку при неточно выставленном периоде
+     */
+    @Test
+    public void testWindows() {
+        AppProperties.setBoolean(AppProperties.Keys.HARMONICS_DECIBELLS, false);
+        Result r = new Result(10, 15);
+        assertTrue(r.processADCData(makeCosineHarmonic(), false, false));
+        for (SpectrumWindow w : SpectrumWindow.values()) {
+            AppProperties.setSpectrumWindow(w);
+            r.processHarmonicsData(0, 49);
+            assertEquals(w.name(), 0.1, r.getKHarm(), 0.002);
+            assertEquals(w.name(), 0, r.getHarmonicPhases()[2], 0.05);
+        }
+        // период выставлен с ошибкой в один отсчёт
+        AppProperties.setSpectrumWindow(SpectrumWindow.RECTANGULAR);
+        r.processHarmonicsData(0, 48);
+        double rectError = Math.abs(r.getKHarm() - 0.1);
+        for (SpectrumWindow w : new SpectrumWindow[]{SpectrumWindow.HANN, SpectrumWindow.BLACKMAN_HARRIS, SpectrumWindow.FLAT_TOP}) {
+            AppProperties.setSpectrumWindow(w);
+            r.processHarmonicsData(0, 48);
+            assertTrue(w.name(), Math.abs(r.getKHarm() - 0.1) < rectError);
+        }
+        AppProperties.setSpectrumWindow(SpectrumWindow.HANN);
+    }
+
+    /**
+     * Этапы анализа выполняются только при обращении к их результатам
+     */
+    @Test
+    public void testLazyStages() {
+        Result r = new Result(10, 15);
+        assertTrue(r.processADCData(makeMeandr(), true, true));
+        assertFalse(r.isVoltagesReady());
+        assertFalse(r.isMeasured());
+        assertEquals(48.83, r.getVMax(), 0.01);
+        assertTrue(r.isVoltagesReady());
+        assertFalse(r.isMeasured());
+        assertEquals(100, r.getLeftRulerPos());
+        assertTrue(r.isMeasured());
+        // ручная установка линеек не перекрывается автоматической
+        assertTrue(r.processADCData(makeMeandr(), true, true));
+        r.setDeltaT(10, 60);
+        assertEquals(10, r.getLeftRulerPos());
+        assertEquals(60, r.getRightRulerPos());
+        // новые данные сбрасывают результаты этапов
+        assertTrue(r.processADCData(makeZero(), false, false));
+        assertFalse(r.isVoltagesReady());
+        assertFalse(r.isMeasured());
+    }
+
     public void testOverload() {
         Result r = new Result(10, 15);
         assertTrue(r.processADCData(makeFull(), true, true));
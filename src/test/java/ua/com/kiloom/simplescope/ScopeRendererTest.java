@@ -0,0 +1,66 @@
+package ua.com.kiloom.simplescope;
+
+import java.awt.image.BufferedImage;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест рисования графика
+ *
+ * @author Vasily Monakhov
+ */
+public class ScopeRendererTest {
+
+    /**
+     * Пул, создающий изображения без экрана
+     */
+    private static class TestPool extends ImagePool {
+
+        /**
+         * Создаёт пул
+         */
+        TestPool() {
+            super(Const.IMAGE_POOL_MAX_PIXELS);
+        }
+
+        @Override
+        BufferedImage createImage(int width, int height) {
+            return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        }
+    }
+
+    /**
+     * Создать результат с синусоидой
+     *
+     * @return результат
+     */
+    private Result makeResult() {
+        int[] values = new int[Const.ADC_DATA_BLOCK_SIZE];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (int) Math.round(Const.ADC_MIDDLE + 1000 * Math.sin(2 * Math.PI * i / 50));
+        }
+        Result r = new Result(5, 5);
+        assertTrue(r.processADCData(values, false, false));
+        return r;
+    }
+
+    /**
+     * Послесвечение с интерполяцией на области шире количества отсчётов
+     */
+    @Test
+    public void testPersistenceWithInterpolation() throws Exception {
+        ScopeRenderer renderer = new ScopeRenderer(new TestPool());
+        renderer.setColorScheme(ColorScheme.GREEN_MONO_SCHEME);
+        renderer.setInterpolation(true);
+        renderer.setPersistence(true, 10);
+        int width = 3 * Const.ADC_DATA_BLOCK_SIZE;
+        for (int i = 0; i < 2; i++) {
+            Result r = makeResult();
+            renderer.renderScope(width, 600, r);
+            assertNotNull(r.getScopeImage());
+            assertEquals(width, r.getScopeImage().getWidth());
+        }
+        assertTrue(renderer.width > Const.ADC_DATA_BLOCK_SIZE);
+    }
+
+}
@@ -0,0 +1,67 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест интерполяции sin(x)/x
+ *
+ * @author Vasily Monakhov
+ */
+public class SincInterpolatorTest {
+
+    /**
+     * Отсчёты сохраняются, синусоида между отсчётами восстанавливается
+     * точнее, чем ломаной
+     */
+    @Test
+    public void testSine() {
+        int n = Const.ADC_DATA_BLOCK_SIZE;
+        double period = 8;
+        int[] data = new int[n];
+        for (int i = 0; i < n; i++) {
+            data[i] = (int) Math.round(Const.ADC_MIDDLE + 1500 * Math.sin(2 * Math.PI * i / period));
+        }
+        SincInterpolator s = new SincInterpolator();
+        double step = 0.25;
+        int count = s.interpolate(data, n, step);
+        assertEquals((n - 1) * 4 + 1, count);
+        double[] values = s.getValues();
+        double maxError = 0;
+        double linearError = 0;
+        for (int j = 0; j < count; j++) {
+            double t = j * step;
+            if (j % 4 == 0) {
+                assertEquals(data[j / 4], values[j], 1e-6);
+            }
+            if (t < SincInterpolator.TAPS || t > n - 1 - SincInterpolator.TAPS) {
+                // у краёв фильтр неполный
+                continue;
+            }
+            double exact = Const.ADC_MIDDLE + 1500 * Math.sin(2 * Math.PI * t / period);
+            maxError = Math.max(maxError, Math.abs(values[j] - exact));
+            int i = (int) t;
+            double linear = data[i] + (data[i + 1] - data[i]) * (t - i);
+            linearError = Math.max(linearError, Math.abs(linear - exact));
+        }
+        assertTrue("error " + maxError, maxError < 5);
+        assertTrue(linearError > 50);
+    }
+
+    /**
+     * Постоянный сигнал остаётся постоянным, в том числе у краёв
+     */
+    @Test
+    public void testConstant() {
+        int[] data = new int[Const.ADC_DATA_BLOCK_SIZE];
+        Arrays.fill(data, 1234);
+        SincInterpolator s = new SincInterpolator();
+        int count = s.interpolate(data, data.length, 500.0 / 1337);
+        for (int j = 0; j < count; j++) {
+            assertEquals(1234, s.getValues()[j], 1e-9);
+        }
+        assertTrue((count - 1) * 500.0 / 1337 <= data.length - 1);
+    }
+
+}
@@ -0,0 +1,93 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест вычисления спектра
+ *
+ * @author Vasily Monakhov
+ */
+public class SpectrumEngineTest {
+
+    /**
+     * Сравнить БПФ с прямым вычислением ДПФ
+     *
+     * @param n длина преобразования
+     */
+    private void compareWithDft(int n) {
+        Random rnd = new Random(n);
+        double[] x = new double[n + 3];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = rnd.nextDouble() - 0.5;
+        }
+        SpectrumEngine engine = new SpectrumEngine();
+        engine.transform(x, 3, n);
+        assertEquals(n, engine.getSize());
+        for (int k = 0; k < n; k++) {
+            double re = 0;
+            double im = 0;
+            for (int j = 0; j < n; j++) {
+                double fi = -2 * Math.PI * j * k / n;
+                re += x[j + 3] * Math.cos(fi);
+                im += x[j + 3] * Math.sin(fi);
+            }
+            assertEquals("n=" + n + " k=" + k, re, engine.getRe(k), 1e-9);
+            assertEquals("n=" + n + " k=" + k, im, engine.getIm(k), 1e-9);
+        }
+    }
+
+    /**
+     * Длины степени двойки и произвольные длины (алгоритм Блюстейна)
+     */
+    @Test
+    public void testAgainstDft() {
+        for (int n : new int[]{1, 2, 8, 64, 3, 7, 100, 250, 499}) {
+            compareWithDft(n);
+        }
+    }
+
+    /**
+     * Модуль и фаза гармоник косинуса
+     */
+    @Test
+    public void testMagnitudeAndPhase() {
+        int n = 250;
+        double[] x = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = 2 * Math.cos(2 * Math.PI * 3 * i / n + 0.5);
+        }
+        SpectrumEngine engine = new SpectrumEngine();
+        engine.transform(x, 0, n);
+        assertEquals(n, engine.getMagnitude(3), 1e-9);
+        assertEquals(0.5, engine.getPhase(3), 1e-9);
+        assertEquals(0, engine.getMagnitude(4), 1e-9);
+    }
+
+    /**
+     * Таблицы общие для всех экземпляров и вытесняются по давности
+     * использования
+     */
+    @Test
+    public void testPlanCache() {
+        SpectrumEngine.clearPlanCache();
+        double[] x = new double[Const.ADC_DATA_BLOCK_SIZE];
+        SpectrumEngine first = new SpectrumEngine();
+        SpectrumEngine second = new SpectrumEngine();
+        first.transform(x, 0, 250);
+        first.transform(x, 0, 250);
+        second.transform(x, 0, 250);
+        assertEquals(1, SpectrumEngine.getPlanMisses());
+        assertEquals(2, SpectrumEngine.getPlanHits());
+        assertSame(first.getPlan(250), second.getPlan(250));
+        for (int n = 2; n < Const.SPECTRUM_PLAN_CACHE_SIZE + 10; n++) {
+            first.transform(x, 0, n);
+        }
+        assertEquals(Const.SPECTRUM_PLAN_CACHE_SIZE, SpectrumEngine.getCachedPlans());
+        long misses = SpectrumEngine.getPlanMisses();
+        first.transform(x, 0, 250);
+        assertEquals(misses + 1, SpectrumEngine.getPlanMisses());
+    }
+
+}
@@ -0,0 +1,77 @@
+package ua.com.kiloom.simplescope;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Сравнение скорости отрисовки луча через Graphics2D и программной
+ * отрисовки. Запускается вручную после mvn test-compile:
+ * java -cp target/classes:target/test-classes
+ * ua.com.kiloom.simplescope.TraceRasterizerBenchmark
+ *
+ * @author Vasily Monakhov
+ */
+public class TraceRasterizerBenchmark {
+
+    /**
+     * Количество кадров для замера
+     */
+    private static final int FRAMES = 500;
+
+    /**
+     * Запуск замера
+     *
+     * @param args не используются
+     */
+    public static void main(String[] args) {
+        for (int[] size : new int[][]{{640, 480}, {1280, 800}, {1920, 1080}, {3840, 2160}}) {
+            run(size[0], size[1]);
+        }
+    }
+
+    /**
+     * Замер для одного размера изображения
+     *
+     * @param width ширина изображения
+     * @param height высота изображения
+     */
+    private static void run(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int n = Const.ADC_DATA_BLOCK_SIZE;
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = i * width / n;
+            // синусоида с шумом, как у реального сигнала
+            ys[i] = (int) (height / 2 + height / 3 * Math.sin(i * 0.1) + ((i * 7919) % 13) - 6);
+        }
+        TraceRasterizer rasterizer = new TraceRasterizer();
+        Color color = Color.GREEN;
+        for (int pass = 0; pass < 2; pass++) {
+            // первый проход - прогрев
+            long start = System.nanoTime();
+            for (int f = 0; f < FRAMES; f++) {
+                Graphics2D g = image.createGraphics();
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.setColor(color);
+                g.setStroke(ScopeRenderer.RAY_STROKE);
+                g.drawPolyline(xs, ys, n);
+                g.dispose();
+            }
+            long java2d = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int f = 0; f < FRAMES; f++) {
+                rasterizer.draw(image, xs, ys, n, color.getRGB() & 0xFFFFFF, ScopeRenderer.RAY_WIDTH);
+            }
+            long direct = System.nanoTime() - start;
+            if (pass == 1) {
+                System.out.printf("%dx%d: Graphics2D %.3f мс/кадр, программно %.3f мс/кадр%n",
+                        width, height, java2d / 1e6 / FRAMES, direct / 1e6 / FRAMES);
+            }
+        }
+    }
+
+}
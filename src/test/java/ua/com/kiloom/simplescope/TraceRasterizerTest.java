@@ -0,0 +1,83 @@
+package ua.com.kiloom.simplescope;
+
+import java.awt.image.BufferedImage;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест программной отрисовки луча
+ *
+ * @author Vasily Monakhov
+ */
+public class TraceRasterizerTest {
+
+    /**
+     * Цвет луча
+     */
+    private static final int RAY = 0x00FF00;
+
+    /**
+     * Горизонтальный луч толщиной 3 закрашивает три строки, ступенька
+     * закрашивает столбец целиком
+     */
+    @Test
+    public void testThickness() {
+        BufferedImage image = new BufferedImage(40, 40, BufferedImage.TYPE_INT_RGB);
+        TraceRasterizer t = new TraceRasterizer();
+        int[] xs = {5, 20, 20, 30};
+        int[] ys = {10, 10, 30, 30};
+        assertTrue(t.draw(image, xs, ys, 4, RAY, 3));
+        // столбец 19 уже входит в толщину вертикальной части
+        for (int x = 5; x <= 18; x++) {
+            assertEquals(0, image.getRGB(x, 8) & 0xFFFFFF);
+            assertEquals(RAY, image.getRGB(x, 9) & 0xFFFFFF);
+            assertEquals(RAY, image.getRGB(x, 10) & 0xFFFFFF);
+            assertEquals(RAY, image.getRGB(x, 11) & 0xFFFFFF);
+            assertEquals(0, image.getRGB(x, 12) & 0xFFFFFF);
+        }
+        // вертикальная часть толщиной 3 по горизонтали
+        for (int y = 10; y <= 30; y++) {
+            assertEquals(RAY, image.getRGB(19, y) & 0xFFFFFF);
+            assertEquals(RAY, image.getRGB(20, y) & 0xFFFFFF);
+            assertEquals(RAY, image.getRGB(21, y) & 0xFFFFFF);
+            if (y > 11 && y < 29) {
+                assertEquals(0, image.getRGB(22, y) & 0xFFFFFF);
+            }
+        }
+        assertEquals(RAY, image.getRGB(31, 31) & 0xFFFFFF);
+        assertEquals(0, image.getRGB(32, 30) & 0xFFFFFF);
+        assertEquals(0, image.getRGB(3, 10) & 0xFFFFFF);
+    }
+
+    /**
+     * Наклонный луч сглаживается: у краёв есть частично закрашенные
+     * пиксели, луч за пределами изображения отсекается
+     */
+    @Test
+    public void testAntialiasingAndClipping() {
+        BufferedImage image = new BufferedImage(20, 20, BufferedImage.TYPE_INT_RGB);
+        TraceRasterizer t = new TraceRasterizer();
+        assertTrue(t.draw(image, new int[]{-10, 30}, new int[]{0, 15}, 2, RAY, 3));
+        boolean partial = false;
+        for (int x = 0; x < 20; x++) {
+            for (int y = 0; y < 20; y++) {
+                int g = (image.getRGB(x, y) >> 8) & 0xFF;
+                assertEquals(0, image.getRGB(x, y) & 0xFF00FF);
+                if (g > 0 && g < 255) {
+                    partial = true;
+                }
+            }
+        }
+        assertTrue(partial);
+    }
+
+    /**
+     * Изображения без пикселей int не поддерживаются
+     */
+    @Test
+    public void testUnsupported() {
+        BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_3BYTE_BGR);
+        assertFalse(new TraceRasterizer().draw(image, new int[]{0, 9}, new int[]{0, 9}, 2, RAY, 3));
+    }
+
+}
@@ -0,0 +1,79 @@
+package ua.com.kiloom.simplescope;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Тест усреднения кадров
+ *
+ * @author Vasily Monakhov
+ */
+public class WaveformAveragerTest {
+
+    /**
+     * Создать кадр с одинаковыми значениями
+     *
+     * @param value значение АЦП
+     * @return кадр
+     */
+    private int[] frame(int value) {
+        int[] data = new int[Const.ADC_DATA_BLOCK_SIZE];
+        Arrays.fill(data, value);
+        return data;
+    }
+
+    /**
+     * Среднее по накопленным кадрам и вытеснение самого старого кадра
+     */
+    @Test
+    public void testRunningAverage() {
+        WaveformAverager a = new WaveformAverager();
+        a.setFrames(3);
+        int[] data = frame(100);
+        a.add(data, 1);
+        assertEquals(1, a.getCount());
+        assertEquals(100, data[0]);
+        data = frame(200);
+        a.add(data, 1);
+        assertEquals(2, a.getCount());
+        assertEquals(150, data[10]);
+        data = frame(301);
+        a.add(data, 1);
+        assertEquals(3, a.getCount());
+        assertEquals(200, data[499]);
+        // первый кадр вытесняется: (200 + 301 + 400) / 3 = 300.33
+        data = frame(400);
+        a.add(data, 1);
+        assertEquals(3, a.getCount());
+        assertEquals(300, data[0]);
+        // (301 + 400 + 401) / 3 = 367.33, (400 + 401 + 402) / 3 = 401
+        data = frame(401);
+        a.add(data, 1);
+        assertEquals(367, data[0]);
+        data = frame(402);
+        a.add(data, 1);
+        assertEquals(401, data[0]);
+    }
+
+    /**
+     * Смена настроек и количества кадров сбрасывает накопленное
+     */
+    @Test
+    public void testReset() {
+        WaveformAverager a = new WaveformAverager();
+        a.setFrames(4);
+        a.add(frame(1000), 1);
+        a.add(frame(2000), 1);
+        int[] data = frame(3000);
+        a.add(data, 2);
+        assertEquals(1, a.getCount());
+        assertEquals(3000, data[0]);
+        a.setFrames(4);
+        assertEquals(1, a.getCount());
+        a.setFrames(8);
+        assertEquals(0, a.getCount());
+        assertEquals(8, a.getFrames());
+    }
+
+}